@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.protocol.AckArgs;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Ack arguments binding by #{@link JacksonJsonSupport} on large payloads.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=AckArgsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AckArgsBenchmark {
+
+    @Param({"10", "1000"})
+    public int items;
+
+    private final JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+    private ByteBuf ack;
+    private AckCallback<Object> objectCallback;
+    private MultiTypeAckCallback multiTypeCallback;
+
+    @Setup
+    public void setup() {
+        StringBuilder payload = new StringBuilder("[[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"id\":").append(i)
+                   .append(",\"userName\":\"user").append(i)
+                   .append("\",\"message\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit\"}");
+        }
+        payload.append("],{\"total\":").append(items).append("},\"ok\"]");
+        ack = Unpooled.copiedBuffer(payload, CharsetUtil.UTF_8);
+
+        objectCallback = new AckCallback<Object>(Object.class) {
+            @Override
+            public void onSuccess(Object result) {
+            }
+        };
+        multiTypeCallback = new MultiTypeAckCallback(List.class, Map.class, String.class) {
+            @Override
+            public void onSuccess(MultiTypeArgs result) {
+            }
+        };
+    }
+
+    @Benchmark
+    public AckArgs readAckArgs() throws IOException {
+        return jsonSupport.readAckArgs(new ByteBufInputStream(ack.duplicate()), objectCallback);
+    }
+
+    @Benchmark
+    public AckArgs readMultiTypeAckArgs() throws IOException {
+        return jsonSupport.readAckArgs(new ByteBufInputStream(ack.duplicate()), multiTypeCallback);
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.protocol.EncodedPacket;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Broadcast of one event to N clients:
+ * encoding per client versus encoding once and sharing the content.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=BroadcastEncodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastEncodingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int clients;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private PacketEncoder encoder;
+    private Packet packet;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+
+        Map<String, Object> message = new HashMap<String, Object>();
+        message.put("userName", "user");
+        message.put("message", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+        message.put("timestamp", System.currentTimeMillis());
+
+        packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("chatevent");
+        packet.setData(Arrays.<Object>asList(message));
+    }
+
+    @Benchmark
+    public void encodePerClient(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < clients; i++) {
+            ByteBuf out = encoder.allocateBuffer(allocator);
+            encoder.encodePacket(packet, out, allocator, true);
+            blackhole.consume(out.readableBytes());
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public void encodeOnce(Blackhole blackhole) throws IOException {
+        Packet sharedPacket = packet.withSharedEncoding("/chat");
+        EncodedPacket encodedPacket = sharedPacket.getEncodedPacket();
+        for (int i = 0; i < clients; i++) {
+            // the same steps ClientHead and EncoderHandler do for each client
+            encodedPacket.retain();
+            encodedPacket.encode(encoder, allocator);
+            ByteBuf out = encodedPacket.getContent().retainedDuplicate();
+            blackhole.consume(out.readableBytes());
+            out.release();
+            encodedPacket.release();
+        }
+        encodedPacket.release();
+    }
+
+}
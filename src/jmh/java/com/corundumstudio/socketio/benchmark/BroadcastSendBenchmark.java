@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.EncoderHandler;
+import com.corundumstudio.socketio.handler.TestClients;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * #{@link BroadcastOperations#send} of one event to a room of
+ * websocket clients bound to in-memory channels,
+ * including the write of every frame by #{@link EncoderHandler}.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=BroadcastSendBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastSendBenchmark {
+
+    private static final String ROOM = "room";
+
+    @Param({"1000", "10000"})
+    private int clients;
+
+    @Param({"false", "true"})
+    private boolean eventLoopBroadcast;
+
+    private final CancelableScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private EmbeddedChannel[] channels;
+    private Namespace namespace;
+    private Map<String, Object> message;
+
+    @Setup
+    public void setup() throws IOException {
+        Configuration configuration = new Configuration();
+        configuration.setAddVersionHeader(false);
+        configuration.setEventLoopBroadcast(eventLoopBroadcast);
+        EncoderHandler encoderHandler = new EncoderHandler(configuration,
+                new PacketEncoder(configuration, new JacksonJsonSupport()));
+
+        namespace = new Namespace(Namespace.DEFAULT_NAME, configuration);
+        TestClients factory = new TestClients(configuration, scheduler);
+        channels = new EmbeddedChannel[clients];
+        for (int i = 0; i < clients; i++) {
+            channels[i] = new EmbeddedChannel(encoderHandler);
+            ClientHead client = factory.create(Transport.WEBSOCKET);
+            client.bindChannel(channels[i], Transport.WEBSOCKET);
+            client.addNamespaceClient(namespace);
+            namespace.join(ROOM, client.getSessionId());
+        }
+        drain(null);
+
+        message = new HashMap<String, Object>();
+        message.put("userName", "user");
+        message.put("message", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+        message.put("timestamp", System.currentTimeMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void send(Blackhole blackhole) {
+        namespace.getRoomOperations(ROOM).sendEvent("chatevent", message);
+        drain(blackhole);
+    }
+
+    private void drain(Blackhole blackhole) {
+        for (EmbeddedChannel channel : channels) {
+            while (true) {
+                Object msg = channel.readOutbound();
+                if (msg == null) {
+                    break;
+                }
+                if (blackhole != null) {
+                    blackhole.consume(msg);
+                }
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+
+}
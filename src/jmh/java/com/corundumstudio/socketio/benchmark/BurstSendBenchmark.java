@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.EncoderHandler;
+import com.corundumstudio.socketio.handler.TestClients;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Drain of a websocket client backlog by #{@link EncoderHandler}.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=BurstSendBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BurstSendBenchmark {
+
+    @Param({"1", "16", "256"})
+    private int burst;
+
+    private final CancelableScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private EmbeddedChannel channel;
+    private ClientHead client;
+    private Packet packet;
+
+    @Setup
+    public void setup() throws IOException {
+        Configuration configuration = new Configuration();
+        configuration.setAddVersionHeader(false);
+        PacketEncoder encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+
+        channel = new EmbeddedChannel(new EncoderHandler(configuration, encoder));
+
+        client = new TestClients(configuration, scheduler).create(Transport.WEBSOCKET);
+        client.bindChannel(channel, Transport.WEBSOCKET);
+        drain(null);
+
+        packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("update");
+        packet.setData(Arrays.<Object>asList("Lorem ipsum dolor sit amet", 42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void burstSend(Blackhole blackhole) {
+        for (int i = 0; i < burst; i++) {
+            client.enqueue(packet, Transport.WEBSOCKET);
+        }
+        channel.writeAndFlush(new OutPacketMessage(client, Transport.WEBSOCKET));
+        drain(blackhole);
+    }
+
+    private void drain(Blackhole blackhole) {
+        while (true) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            if (blackhole != null) {
+                blackhole.consume(msg);
+            }
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+}
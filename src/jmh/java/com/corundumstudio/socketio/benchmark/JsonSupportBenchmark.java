@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Event read and write by #{@link JacksonJsonSupport}.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=JsonSupportBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSupportBenchmark {
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+    private ByteBuf event;
+    private List<Object> args;
+
+    @Setup
+    public void setup() {
+        jsonSupport.addEventMapping("", "chatevent", Map.class);
+
+        Map<String, Object> message = new HashMap<String, Object>();
+        message.put("userName", "user");
+        message.put("message", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+        message.put("timestamp", System.currentTimeMillis());
+        args = Arrays.<Object>asList(message);
+
+        event = Unpooled.copiedBuffer("[\"chatevent\",{\"userName\":\"user\",\"timestamp\":1571227800000,"
+                + "\"message\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit\"}]", CharsetUtil.UTF_8);
+    }
+
+    @Benchmark
+    public Event readEvent() throws IOException {
+        return jsonSupport.readValue("", new ByteBufInputStream(event.duplicate()), Event.class);
+    }
+
+    @Benchmark
+    public int writeEvent() throws IOException {
+        ByteBuf out = allocator.buffer();
+        try {
+            jsonSupport.writeEvent(new ByteBufOutputStream(out), "chatevent", args);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.TestClients;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+/**
+ * Room membership operations of #{@link Namespace} with a populated room.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=NamespaceRoomsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamespaceRoomsBenchmark {
+
+    private static final String ROOM = "room";
+
+    @Param({"100", "10000"})
+    private int roomSize;
+
+    private final CancelableScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private Namespace namespace;
+    private UUID[] joiners;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        namespace = new Namespace(Namespace.DEFAULT_NAME, configuration);
+
+        TestClients clients = new TestClients(configuration, scheduler);
+        for (int i = 0; i < roomSize; i++) {
+            SocketIOClient client = clients.create(Transport.WEBSOCKET).addNamespaceClient(namespace);
+            namespace.join(ROOM, client.getSessionId());
+        }
+
+        joiners = new UUID[1024];
+        for (int i = 0; i < joiners.length; i++) {
+            joiners[i] = UUID.randomUUID();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void joinLeave() {
+        UUID sessionId = joiners[index++ & (joiners.length - 1)];
+        namespace.join(ROOM, sessionId);
+        namespace.leave(ROOM, sessionId);
+    }
+
+    @Benchmark
+    public void joinLeaveNewRoom() {
+        UUID sessionId = joiners[index++ & (joiners.length - 1)];
+        namespace.join("private", sessionId);
+        namespace.leave("private", sessionId);
+    }
+
+    @Benchmark
+    public void getRoomClients(Blackhole blackhole) {
+        for (SocketIOClient client : namespace.getRoomClients(ROOM)) {
+            blackhole.consume(client);
+        }
+    }
+
+}
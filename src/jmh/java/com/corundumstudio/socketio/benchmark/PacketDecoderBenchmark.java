@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.TestClients;
+import com.corundumstudio.socketio.listener.MultiTypeEventListener;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketDecoder;
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.base64.Base64;
+import io.netty.util.CharsetUtil;
+
+/**
+ * #{@link PacketDecoder#decodePackets} of websocket text frame,
+ * websocket binary event with attachment frame
+ * and b64 polling payload with binary event.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=PacketDecoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecoderBenchmark {
+
+    private static final String MESSAGE = "{\"userName\":\"user\",\"timestamp\":1571227800000,"
+            + "\"message\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit\"}";
+    private static final String BINARY_EVENT = "51-[\"file\",{\"_placeholder\":true,\"num\":0}]";
+
+    @Param({"false", "true"})
+    private boolean lazyEventArgs;
+
+    private final CancelableScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private PacketDecoder decoder;
+    private ClientHead client;
+
+    private ByteBuf textFrame;
+    private ByteBuf binaryEventFrame;
+    private ByteBuf attachmentFrame;
+    private ByteBuf b64Payload;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        configuration.setJsonSupport(jsonSupport);
+
+        NamespacesHub namespacesHub = new NamespacesHub(configuration);
+        Namespace namespace = namespacesHub.create(Namespace.DEFAULT_NAME);
+        MultiTypeEventListener listener = new MultiTypeEventListener() {
+            @Override
+            public void onData(SocketIOClient client, MultiTypeArgs data, AckRequest ackSender) {
+            }
+        };
+        namespace.addMultiTypeEventListener("message", listener, Map.class);
+        namespace.addMultiTypeEventListener("file", listener, ByteBuf.class);
+
+        decoder = new PacketDecoder(jsonSupport, new AckManager(), namespacesHub, lazyEventArgs);
+        client = new TestClients(configuration, scheduler).create(Transport.WEBSOCKET);
+
+        byte[] data = new byte[1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        textFrame = frame(Unpooled.copiedBuffer("42[\"message\"," + MESSAGE + "]", CharsetUtil.UTF_8));
+        binaryEventFrame = frame(Unpooled.copiedBuffer("4" + BINARY_EVENT, CharsetUtil.UTF_8));
+        attachmentFrame = frame(Unpooled.buffer().writeByte(4).writeBytes(data));
+
+        ByteBuf base64 = Base64.encode(Unpooled.wrappedBuffer(data), false);
+        String attachment = "b4" + base64.toString(CharsetUtil.US_ASCII);
+        base64.release();
+        String payload = (BINARY_EVENT.length() + 1) + ":4" + BINARY_EVENT
+                + attachment.length() + ":" + attachment;
+        b64Payload = frame(Unpooled.copiedBuffer(payload, CharsetUtil.UTF_8));
+    }
+
+    /**
+     * Source frames are reused, so slices retained by decoder shouldn't free them
+     */
+    private ByteBuf frame(ByteBuf buf) {
+        return Unpooled.unreleasableBuffer(buf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public Object decodeText() throws IOException {
+        Packet packet = decoder.decodePackets(textFrame.duplicate(), client);
+        Object data = packet.getData();
+        packet.releaseAttachments();
+        return data;
+    }
+
+    @Benchmark
+    public Object decodeBinary() throws IOException {
+        decoder.decodePackets(binaryEventFrame.duplicate(), client);
+        Packet packet = decoder.decodePackets(attachmentFrame.duplicate(), client);
+        Object data = packet.getData();
+        packet.releaseAttachments();
+        return data;
+    }
+
+    @Benchmark
+    public Object decodeB64() throws IOException {
+        ByteBuf content = b64Payload.duplicate();
+        Packet packet = null;
+        while (content.isReadable()) {
+            packet = decoder.decodePackets(content, client);
+        }
+        Object data = packet.getData();
+        packet.releaseAttachments();
+        return data;
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * #{@link PacketEncoder} framings: single websocket packet,
+ * binary polling payload and b64 polling payload.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=PacketEncoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketEncoderBenchmark {
+
+    @Param({"1", "16"})
+    private int packets;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final Queue<Packet> queue = new ArrayDeque<Packet>();
+    private PacketEncoder encoder;
+    private Packet packet;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+
+        Map<String, Object> message = new HashMap<String, Object>();
+        message.put("userName", "user");
+        message.put("message", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+        message.put("timestamp", System.currentTimeMillis());
+
+        packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("chatevent");
+        packet.setData(Arrays.<Object>asList(message));
+    }
+
+    private Queue<Packet> fillQueue() {
+        for (int i = 0; i < packets; i++) {
+            queue.add(packet);
+        }
+        return queue;
+    }
+
+    @Benchmark
+    public void encodePacket(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < packets; i++) {
+            ByteBuf out = encoder.allocateBuffer(allocator);
+            encoder.encodePacket(packet, out, allocator, true);
+            blackhole.consume(out.readableBytes());
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public void encodePackets(Blackhole blackhole) throws IOException {
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        encoder.encodePackets(fillQueue(), out, allocator, 50);
+        blackhole.consume(out.readableBytes());
+        out.release();
+    }
+
+    @Benchmark
+    public void encodeJsonP(Blackhole blackhole) throws IOException {
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        encoder.encodeJsonP(null, fillQueue(), out, allocator, 50);
+        blackhole.consume(out.readableBytes());
+        out.release();
+    }
+
+}
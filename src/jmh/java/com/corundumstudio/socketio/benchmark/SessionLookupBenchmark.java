@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.misc.SessionIdMap;
+import com.corundumstudio.socketio.misc.SessionIds;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Session lookup by <code>sid</code> parameter in #{@link SessionIdMap}
+ * compared to {@link ConcurrentMap} keyed by {@link UUID}.
+ * Concurrent benchmarks read from several threads,
+ * optionally while another thread connects and disconnects sessions.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=SessionLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SessionLookupBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int sessions;
+
+    private final ConcurrentMap<UUID, Object> uuidMap = PlatformDependent.newConcurrentHashMap();
+    private final SessionIdMap<Object> sessionIdMap = new SessionIdMap<Object>();
+    private UUID[] ids;
+    private String[] sids;
+    private int index;
+
+    @Setup
+    public void setup() {
+        ids = new UUID[sessions];
+        sids = new String[sessions];
+        Object value = new Object();
+        for (int i = 0; i < sessions; i++) {
+            ids[i] = UUID.randomUUID();
+            sids[i] = ids[i].toString();
+            uuidMap.put(ids[i], value);
+            sessionIdMap.put(ids[i], value);
+        }
+    }
+
+    /**
+     * Lookup position of each reader thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next(int sessions) {
+            int i = index + 1;
+            if (i >= sessions) {
+                i = 0;
+            }
+            index = i;
+            return i;
+        }
+
+    }
+
+    private int next() {
+        int i = index + 1;
+        if (i == sessions) {
+            i = 0;
+        }
+        index = i;
+        return i;
+    }
+
+    @Benchmark
+    public Object uuidMapGet() {
+        return uuidMap.get(ids[next()]);
+    }
+
+    @Benchmark
+    public Object sessionIdMapGet() {
+        return sessionIdMap.get(ids[next()]);
+    }
+
+    @Benchmark
+    public Object uuidMapGetBySid() {
+        return uuidMap.get(UUID.fromString(sids[next()]));
+    }
+
+    @Benchmark
+    public Object sessionIdMapGetBySid() {
+        String sid = sids[next()];
+        if (!SessionIds.isCanonical(sid)) {
+            return null;
+        }
+        return sessionIdMap.get(SessionIds.parseMostSignificantBits(sid), SessionIds.parseLeastSignificantBits(sid));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object uuidMapConcurrentGet(Cursor cursor) {
+        return uuidMap.get(ids[cursor.next(sessions)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object sessionIdMapConcurrentGet(Cursor cursor) {
+        return sessionIdMap.get(ids[cursor.next(sessions)]);
+    }
+
+    @Benchmark
+    @Group("uuidMapChurn")
+    @GroupThreads(3)
+    public Object uuidMapChurnGet(Cursor cursor) {
+        return uuidMap.get(ids[cursor.next(sessions)]);
+    }
+
+    @Benchmark
+    @Group("uuidMapChurn")
+    @GroupThreads(1)
+    public Object uuidMapChurnPutRemove() {
+        UUID id = UUID.randomUUID();
+        uuidMap.put(id, id);
+        return uuidMap.remove(id);
+    }
+
+    @Benchmark
+    @Group("sessionIdMapChurn")
+    @GroupThreads(3)
+    public Object sessionIdMapChurnGet(Cursor cursor) {
+        return sessionIdMap.get(ids[cursor.next(sessions)]);
+    }
+
+    @Benchmark
+    @Group("sessionIdMapChurn")
+    @GroupThreads(1)
+    public Object sessionIdMapChurnPutRemove() {
+        UUID id = UUID.randomUUID();
+        sessionIdMap.put(id, id);
+        return sessionIdMap.remove(id);
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Packet header parsing: byte-level #{@link PacketDecoder} parser
+ * versus the previous String based one.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec -Djmh.benchmarks=HeaderParserBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderParserBenchmark {
+
+    @Param({"/chat,1234567[\"message\"]", "12345678[\"message\"]", "3-/binary,42[\"message\"]"})
+    private String header;
+
+    private PacketDecoder decoder;
+    private ByteBuf frame;
+    private PacketType innerType;
+
+    @Setup
+    public void setup() {
+        NamespacesHub namespacesHub = new NamespacesHub(new Configuration());
+        namespacesHub.create("");
+        namespacesHub.create("/chat");
+        namespacesHub.create("/binary");
+
+        decoder = new PacketDecoder(new JacksonJsonSupport(), null, namespacesHub);
+        frame = Unpooled.copiedBuffer(header, CharsetUtil.UTF_8);
+        innerType = PacketType.EVENT;
+        if (header.contains("-")) {
+            innerType = PacketType.BINARY_EVENT;
+        }
+    }
+
+    @Benchmark
+    public Packet parseHeader() {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        frame.readerIndex(0);
+        decoder.parseHeader(frame, packet, innerType);
+        return packet;
+    }
+
+    @Benchmark
+    public Packet legacyParseHeader() {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        frame.readerIndex(0);
+        LegacyHeaderParser.parseHeader(frame, packet, innerType);
+        return packet;
+    }
+
+    /**
+     * Copy of the String based header parser as baseline
+     */
+    static class LegacyHeaderParser {
+
+        static long readLong(ByteBuf chars, int length) {
+            long result = 0;
+            for (int i = chars.readerIndex(); i < chars.readerIndex() + length; i++) {
+                int digit = ((int)chars.getByte(i) & 0xF);
+                for (int j = 0; j < chars.readerIndex() + length-1-i; j++) {
+                    digit *= 10;
+                }
+                result += digit;
+            }
+            chars.readerIndex(chars.readerIndex() + length);
+            return result;
+        }
+
+        static String readString(ByteBuf frame, int size) {
+            byte[] bytes = new byte[size];
+            frame.readBytes(bytes);
+            return new String(bytes, CharsetUtil.UTF_8);
+        }
+
+        static void parseHeader(ByteBuf frame, Packet packet, PacketType innerType) {
+            int endIndex = frame.bytesBefore((byte)'[');
+            if (endIndex <= 0) {
+                return;
+            }
+
+            int attachmentsDividerIndex = frame.bytesBefore(endIndex, (byte)'-');
+            boolean hasAttachments = attachmentsDividerIndex != -1;
+            if (hasAttachments && (PacketType.BINARY_EVENT.equals(innerType)
+                    || PacketType.BINARY_ACK.equals(innerType))) {
+                int attachments = (int) readLong(frame, attachmentsDividerIndex);
+                packet.initAttachments(attachments);
+                frame.readerIndex(frame.readerIndex() + 1);
+
+                endIndex -= attachmentsDividerIndex + 1;
+            }
+            if (endIndex == 0) {
+                return;
+            }
+
+            boolean hasNsp = frame.bytesBefore(endIndex, (byte)',') != -1;
+            if (hasNsp) {
+                String nspAckId = readString(frame, endIndex);
+                String[] parts = nspAckId.split(",");
+                String nsp = parts[0];
+                packet.setNsp(nsp);
+                if (parts.length > 1) {
+                    String ackId = parts[1];
+                    packet.setAckId(Long.valueOf(ackId));
+                }
+            } else {
+                long ackId = readLong(frame, endIndex);
+                packet.setAckId(ackId);
+            }
+        }
+
+    }
+
+}
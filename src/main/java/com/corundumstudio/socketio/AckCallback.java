@@ -15,6 +15,7 @@
  */
 package com.corundumstudio.socketio;
 
+import java.util.concurrent.TimeUnit;
 
 /**
  * ack回调基础类。
@@ -32,6 +33,10 @@ package com.corundumstudio.socketio;
  * while {@link SocketIOClient} is alive. Timeout can be
  * defined {@link #timeout} as constructor argument.
  *
+ * Timeouts are checked by periodic sweep of {@link com.corundumstudio.socketio.ack.AckManager},
+ * so {@link #onTimeout} is invoked by dedicated sweep thread instead of channel event loop
+ * and up to 100 ms after the timeout.
+ *
  * 如果执行了onSuccess或onTimeout，则此对象不再是实际对象。
  *
  * This object is NOT actual anymore if {@link #onSuccess} or
@@ -72,6 +77,16 @@ public abstract class AckCallback<T> {
         return timeout;
     }
 
+    /**
+     * @return callback timeout in milliseconds or <code>-1</code> if not defined
+     */
+    public long getTimeoutMillis() {
+        if (timeout == -1) {
+            return -1;
+        }
+        return TimeUnit.SECONDS.toMillis(timeout);
+    }
+
     /**
      * 当收到回调时，只执行一次
      *
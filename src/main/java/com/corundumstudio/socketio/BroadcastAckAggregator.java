@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Single ack callback registered for all recipients of broadcast.
+ * Outstanding acks are tracked by counters and expire
+ * by one deadline for the whole broadcast.
+ *
+ * @param <T> - ack result type
+ */
+class BroadcastAckAggregator<T> extends AckCallback<T> {
+
+    private final Promise<BroadcastAckResult<T>> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger timeoutCount = new AtomicInteger();
+    private final int sampleSize;
+    private final List<T> sampledResults;
+
+    // registered acks, cancelled at deadline
+    private AckManager ackManager;
+    private UUID[] sessionIds = new UUID[16];
+    private long[] ackIds = new long[16];
+    private int registered;
+
+    private int sent;
+    private volatile boolean loopFinished;
+    private volatile ScheduledFuture<?> deadline;
+
+    BroadcastAckAggregator(Class<T> resultClass, int sampleSize) {
+        // no timeout per client
+        super(resultClass, -1);
+        this.sampleSize = sampleSize;
+        this.sampledResults = new ArrayList<T>(Math.min(sampleSize, 16));
+    }
+
+    Future<BroadcastAckResult<T>> getFuture() {
+        return promise;
+    }
+
+    /**
+     * Sends packet with ack request to client.
+     * Invoked by broadcasting thread only.
+     */
+    void send(SocketIOClient client, Packet packet) {
+        sent++;
+        client.send(packet, this);
+
+        if (packet.getAckId() != null && client instanceof NamespaceClient) {
+            if (ackManager == null) {
+                ackManager = ((NamespaceClient) client).getBaseClient().getAckManager();
+            }
+            if (registered == ackIds.length) {
+                sessionIds = Arrays.copyOf(sessionIds, registered * 2);
+                ackIds = Arrays.copyOf(ackIds, registered * 2);
+            }
+            sessionIds[registered] = client.getSessionId();
+            ackIds[registered] = packet.getAckId();
+            registered++;
+        }
+    }
+
+    void loopFinished(long timeout, TimeUnit unit) {
+        loopFinished = true;
+        if (tryComplete()) {
+            return;
+        }
+
+        deadline = GlobalEventExecutor.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, timeout, unit);
+        if (promise.isDone()) {
+            deadline.cancel(false);
+        }
+    }
+
+    @Override
+    public void onSuccess(T result) {
+        if (promise.isDone()) {
+            return;
+        }
+        successCount.incrementAndGet();
+        if (sampleSize > 0) {
+            synchronized (sampledResults) {
+                if (sampledResults.size() < sampleSize) {
+                    sampledResults.add(sample(result));
+                }
+            }
+        }
+        tryComplete();
+    }
+
+    @Override
+    public void onTimeout() {
+        // already counted at deadline
+        if (promise.isDone()) {
+            return;
+        }
+        // client has been disconnected
+        timeoutCount.incrementAndGet();
+        tryComplete();
+    }
+
+    /**
+     * <code>ByteBuf</code> result is a view of ack packet attachment
+     * released after callback invocation, so its content is copied
+     * to unpooled buffer which doesn't need to be released.
+     */
+    @SuppressWarnings("unchecked")
+    private T sample(T result) {
+        if (result instanceof ByteBuf) {
+            return (T) Unpooled.copiedBuffer((ByteBuf) result);
+        }
+        return result;
+    }
+
+    private void expire() {
+        // every client which hasn't acknowledged by deadline is timed out
+        int successes = successCount.get();
+        complete(successes, sent - successes);
+
+        for (int i = 0; i < registered; i++) {
+            ackManager.cancelAck(sessionIds[i], ackIds[i]);
+        }
+    }
+
+    private boolean tryComplete() {
+        if (loopFinished
+                && successCount.get() + timeoutCount.get() >= sent) {
+            complete(successCount.get(), timeoutCount.get());
+            return true;
+        }
+        return false;
+    }
+
+    private void complete(int successes, int timeouts) {
+        List<T> results;
+        synchronized (sampledResults) {
+            results = Collections.unmodifiableList(new ArrayList<T>(sampledResults));
+        }
+        BroadcastAckResult<T> result = new BroadcastAckResult<T>(successes, timeouts, results);
+        if (promise.trySuccess(result)) {
+            ScheduledFuture<?> future = deadline;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+}
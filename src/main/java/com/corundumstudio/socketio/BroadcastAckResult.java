@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.util.List;
+
+/**
+ * Result of broadcast with aggregated acknowledgements
+ *
+ * @param <T> - ack result type
+ */
+public class BroadcastAckResult<T> {
+
+    private final int successCount;
+    private final int timeoutCount;
+    private final List<T> sampledResults;
+
+    public BroadcastAckResult(int successCount, int timeoutCount, List<T> sampledResults) {
+        this.successCount = successCount;
+        this.timeoutCount = timeoutCount;
+        this.sampledResults = sampledResults;
+    }
+
+    /**
+     * @return number of clients acknowledged the event
+     */
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * @return number of clients which haven't acknowledged the event
+     *          before deadline or were disconnected
+     */
+    public int getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * @return first received ack results, not more than requested sample size
+     */
+    public List<T> getSampledResults() {
+        return sampledResults;
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastAckResult [successCount=" + successCount + ", timeoutCount=" + timeoutCount + "]";
+    }
+
+}
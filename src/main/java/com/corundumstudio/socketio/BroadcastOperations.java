@@ -19,10 +19,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.misc.IterableCollection;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.Packet;
@@ -30,6 +34,12 @@ import com.corundumstudio.socketio.protocol.PacketType;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubType;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
 
 /**
  * Fully thread-safe.
@@ -39,11 +49,23 @@ public class BroadcastOperations implements ClientOperations {
 
     private final Iterable<SocketIOClient> clients;
     private final StoreFactory storeFactory;
+    private final boolean eventLoopBroadcast;
 
     public BroadcastOperations(Iterable<SocketIOClient> clients, StoreFactory storeFactory) {
+        this(clients, storeFactory, false);
+    }
+
+    /**
+     * @param clients - recipients
+     * @param storeFactory - store factory used to dispatch packets to other nodes
+     * @param eventLoopBroadcast - group recipients by channel event loop
+     *          and submit single write task per event loop
+     */
+    public BroadcastOperations(Iterable<SocketIOClient> clients, StoreFactory storeFactory, boolean eventLoopBroadcast) {
         super();
         this.clients = clients;
         this.storeFactory = storeFactory;
+        this.eventLoopBroadcast = eventLoopBroadcast;
     }
 
     private void dispatch(Packet packet) {
@@ -72,12 +94,102 @@ public class BroadcastOperations implements ClientOperations {
 
     @Override
     public void send(Packet packet) {
-        for (SocketIOClient client : clients) {
-            client.send(packet);
-        }
+        send(packet, (SocketIOClient) null);
         dispatch(packet);
     }
 
+    /**
+     * Sends packet to all clients except excluded one.
+     * Packet is encoded only once per namespace and
+     * encoded content is shared between all clients of the namespace.
+     */
+    private void send(Packet packet, SocketIOClient excludedClient) {
+        Map<String, Packet> namespacePackets = new HashMap<String, Packet>();
+        Map<EventLoop, EventLoopBatch> batches = null;
+        if (eventLoopBroadcast) {
+            batches = new HashMap<EventLoop, EventLoopBatch>();
+        }
+        try {
+            for (SocketIOClient client : clients) {
+                if (excludedClient != null
+                        && client.getSessionId().equals(excludedClient.getSessionId())) {
+                    continue;
+                }
+
+                String namespace = client.getNamespace().getName();
+                Packet sharedPacket = namespacePackets.get(namespace);
+                if (sharedPacket == null) {
+                    sharedPacket = packet.withSharedEncoding(namespace);
+                    namespacePackets.put(namespace, sharedPacket);
+                }
+                if (batches != null && client instanceof NamespaceClient) {
+                    enqueue((NamespaceClient) client, sharedPacket, batches);
+                } else {
+                    client.send(sharedPacket);
+                }
+            }
+        } finally {
+            for (Packet sharedPacket : namespacePackets.values()) {
+                sharedPacket.getEncodedPacket().release();
+            }
+        }
+
+        if (batches != null) {
+            for (Entry<EventLoop, EventLoopBatch> entry : batches.entrySet()) {
+                EventLoop eventLoop = entry.getKey();
+                if (eventLoop.inEventLoop()) {
+                    entry.getValue().run();
+                } else {
+                    eventLoop.execute(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void enqueue(NamespaceClient client, Packet packet, Map<EventLoop, EventLoopBatch> batches) {
+        Transport transport = client.getTransport();
+        Channel channel = client.enqueue(packet, transport);
+        if (channel == null) {
+            return;
+        }
+
+        EventLoop eventLoop = channel.eventLoop();
+        EventLoopBatch batch = batches.get(eventLoop);
+        if (batch == null) {
+            batch = new EventLoopBatch();
+            batches.put(eventLoop, batch);
+        }
+        batch.add(channel, client, transport);
+    }
+
+    /**
+     * Writes queued packets of all channels bound to the same event loop
+     * and flushes each channel once
+     */
+    private static class EventLoopBatch implements Runnable {
+
+        // client joined to several namespaces shares one channel,
+        // single message drains its whole queue
+        private final Map<Channel, OutPacketMessage> messages = new LinkedHashMap<Channel, OutPacketMessage>();
+
+        public void add(Channel channel, NamespaceClient client, Transport transport) {
+            if (!messages.containsKey(channel)) {
+                messages.put(channel, new OutPacketMessage(client.getBaseClient(), transport));
+            }
+        }
+
+        @Override
+        public void run() {
+            for (Entry<Channel, OutPacketMessage> entry : messages.entrySet()) {
+                entry.getKey().write(entry.getValue());
+            }
+            for (Channel channel : messages.keySet()) {
+                channel.flush();
+            }
+        }
+
+    }
+
     public <T> void send(Packet packet, BroadcastAckCallback<T> ackCallback) {
         for (SocketIOClient client : clients) {
             client.send(packet, ackCallback.createClientCallback(client));
@@ -98,15 +210,41 @@ public class BroadcastOperations implements ClientOperations {
         packet.setName(name);
         packet.setData(Arrays.asList(data));
 
-        for (SocketIOClient client : clients) {
-            if (client.getSessionId().equals(excludedClient.getSessionId())) {
-                continue;
-            }
-            client.send(packet);
-        }
+        send(packet, excludedClient);
         dispatch(packet);
     }
     
+    /**
+     * Relays event received by {@link com.corundumstudio.socketio.listener.RawEventListener}
+     * without json serialization. Event is delivered to clients of current node only.
+     * Arguments buffer isn't released by this method.
+     *
+     * @param name - event name
+     * @param rawArgs - raw json arguments
+     */
+    public void relay(String name, ByteBuf rawArgs) {
+        relay(name, rawArgs, null);
+    }
+
+    /**
+     * Relays event received by {@link com.corundumstudio.socketio.listener.RawEventListener}
+     * to all clients except excluded one without json serialization.
+     * Event is delivered to clients of current node only.
+     * Arguments buffer isn't released by this method.
+     *
+     * @param name - event name
+     * @param rawArgs - raw json arguments
+     * @param excludedClient - client excluded from recipients, may be <code>null</code>
+     */
+    public void relay(String name, ByteBuf rawArgs, SocketIOClient excludedClient) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName(name);
+        packet.setDataSource(rawArgs);
+
+        send(packet, excludedClient);
+    }
+
     @Override
     public void sendEvent(String name, Object... data) {
         Packet packet = new Packet(PacketType.MESSAGE);
@@ -133,5 +271,34 @@ public class BroadcastOperations implements ClientOperations {
         ackCallback.loopFinished();
     }
 
+    /**
+     * Sends event to all clients with one shared ack callback.
+     * Outstanding acks are counted and expire by single deadline
+     * for the whole broadcast instead of per client timeout.
+     *
+     * @param <T> - ack result type
+     * @param name - event name
+     * @param resultClass - ack result class
+     * @param timeout - deadline of the whole broadcast
+     * @param unit - time unit of timeout
+     * @param sampleSize - max number of ack results to collect, 0 to collect only counts
+     * @param data - event data
+     * @return future completed when all clients acknowledged event or deadline passed
+     */
+    public <T> Future<BroadcastAckResult<T>> sendAggregatedEvent(String name, Class<T> resultClass,
+                                                                   long timeout, TimeUnit unit, int sampleSize, Object... data) {
+        List<Object> args = Arrays.asList(data);
+        BroadcastAckAggregator<T> aggregator = new BroadcastAckAggregator<T>(resultClass, sampleSize);
+        for (SocketIOClient client : clients) {
+            // each client gets its own ack id
+            Packet packet = new Packet(PacketType.MESSAGE);
+            packet.setSubType(PacketType.EVENT);
+            packet.setName(name);
+            packet.setData(args);
+            aggregator.send(client, packet);
+        }
+        aggregator.loopFinished(timeout, unit);
+        return aggregator.getFuture();
+    }
 
 }
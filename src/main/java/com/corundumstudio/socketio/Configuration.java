@@ -17,12 +17,14 @@ package com.corundumstudio.socketio;
 
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.corundumstudio.socketio.handler.SuccessAuthorizationListener;
 import com.corundumstudio.socketio.listener.DefaultExceptionListener;
 import com.corundumstudio.socketio.listener.ExceptionListener;
 import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.store.MemoryStoreFactory;
 import com.corundumstudio.socketio.store.StoreFactory;
 
@@ -111,6 +113,29 @@ public class Configuration {
     private boolean websocketCompression = true;
     /** 随机session */
     private boolean randomSession = false;
+    /** 按event loop分组广播 */
+    private boolean eventLoopBroadcast = false;
+    /** 每个client待发送包的最大数量 */
+    private int maxQueuedPackets = 0;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP_OLDEST;
+    /** polling数据包长度回填 */
+    private boolean backfillPayloadLength = false;
+    /** 事件参数延迟绑定 */
+    private boolean lazyEventArgs = false;
+    /** 心跳超时周期性扫描 */
+    private boolean heartbeatSweep = false;
+    /** 超时任务在channel所属的event loop中执行 */
+    private boolean eventLoopScheduler = false;
+    /** 每秒允许的握手数量, 0 表示不限制 */
+    private int handshakeRateLimit = 0;
+    /** 每个IP每秒允许的握手数量, 0 表示不限制 */
+    private int handshakeRateLimitPerIp = 0;
+    /** 等待令牌的握手队列长度 */
+    private int handshakeQueueSize = 0;
+    /** 拒绝握手时Retry-After的最大随机偏移(秒) */
+    private int handshakeRetryJitter = 5;
+    /** 可协商的二进制编解码器 */
+    private List<PacketCodec> packetCodecs = Collections.emptyList();
 
     public Configuration() {
     }
@@ -146,7 +171,7 @@ public class Configuration {
             }
         }
 
-        setJsonSupport(new JsonSupportWrapper(conf.getJsonSupport()));
+        setJsonSupport(JsonSupportWrapper.wrap(conf.getJsonSupport()));
         setContext(conf.getContext());
         setAllowCustomRequests(conf.isAllowCustomRequests());
 
@@ -178,6 +203,18 @@ public class Configuration {
         setHttpCompression(conf.isHttpCompression());
         setWebsocketCompression(conf.isWebsocketCompression());
         setRandomSession(conf.randomSession);
+        setEventLoopBroadcast(conf.isEventLoopBroadcast());
+        setMaxQueuedPackets(conf.getMaxQueuedPackets());
+        setSlowConsumerPolicy(conf.getSlowConsumerPolicy());
+        setBackfillPayloadLength(conf.isBackfillPayloadLength());
+        setLazyEventArgs(conf.isLazyEventArgs());
+        setHeartbeatSweep(conf.isHeartbeatSweep());
+        setEventLoopScheduler(conf.isEventLoopScheduler());
+        setHandshakeRateLimit(conf.getHandshakeRateLimit());
+        setHandshakeRateLimitPerIp(conf.getHandshakeRateLimitPerIp());
+        setHandshakeQueueSize(conf.getHandshakeQueueSize());
+        setHandshakeRetryJitter(conf.getHandshakeRetryJitter());
+        setPacketCodecs(conf.getPacketCodecs().toArray(new PacketCodec[conf.getPacketCodecs().size()]));
     }
 
     public JsonSupport getJsonSupport() {
@@ -626,4 +663,211 @@ public class Configuration {
     public void setRandomSession(boolean randomSession) {
         this.randomSession = randomSession;
     }
+
+    /**
+     * Broadcast packets by grouping recipients by their channel event loop.
+     * Single task is submitted per event loop, it writes packets
+     * to all channels of the loop and flushes each of them once.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param eventLoopBroadcast - <code>true</code> to use event loop batched broadcast
+     */
+    public void setEventLoopBroadcast(boolean eventLoopBroadcast) {
+        this.eventLoopBroadcast = eventLoopBroadcast;
+    }
+    public boolean isEventLoopBroadcast() {
+        return eventLoopBroadcast;
+    }
+
+    /**
+     * Maximum amount of packets queued for sending per client.
+     * Control packets (ping, pong, connect, disconnect) are never limited.
+     * Use <code>0</code> for unlimited queue.
+     * <p>
+     * Default is <code>0</code>
+     *
+     * @param maxQueuedPackets - packets amount
+     *
+     * @see #setSlowConsumerPolicy(SlowConsumerPolicy)
+     */
+    public void setMaxQueuedPackets(int maxQueuedPackets) {
+        this.maxQueuedPackets = maxQueuedPackets;
+    }
+    public int getMaxQueuedPackets() {
+        return maxQueuedPackets;
+    }
+
+    /**
+     * Action taken when client queue reaches <code>maxQueuedPackets</code> limit
+     * <p>
+     * Default is <code>SlowConsumerPolicy.DROP_OLDEST</code>
+     *
+     * @param slowConsumerPolicy - policy
+     *
+     * @see SlowConsumerPolicy
+     */
+    public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    /**
+     * Encode polling payload packets directly after reserved length header
+     * and backfill the length once packet is encoded.
+     * Avoids scratch buffer per packet, but length is written
+     * with leading zeros which standard engine.io clients accept.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param backfillPayloadLength - <code>true</code> to backfill packet length
+     */
+    public void setBackfillPayloadLength(boolean backfillPayloadLength) {
+        this.backfillPayloadLength = backfillPayloadLength;
+    }
+    public boolean isBackfillPayloadLength() {
+        return backfillPayloadLength;
+    }
+
+    /**
+     * Bind event arguments on first access instead of during packet decoding.
+     * Argument bytes are kept until listener invocation ends,
+     * so arguments shouldn't be accessed after it.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param lazyEventArgs - <code>true</code> to bind event arguments lazily
+     */
+    public void setLazyEventArgs(boolean lazyEventArgs) {
+        this.lazyEventArgs = lazyEventArgs;
+    }
+    public boolean isLazyEventArgs() {
+        return lazyEventArgs;
+    }
+
+    /**
+     * Ping timeout check mode. Client activity only updates
+     * its timestamp and clients are checked by periodic task
+     * of event loop instead of per client timeout rescheduled
+     * on every packet.
+     *
+     * Default is <code>false</code>
+     *
+     * @param heartbeatSweep - <code>true</code> to check ping timeout periodically
+     */
+    public void setHeartbeatSweep(boolean heartbeatSweep) {
+        this.heartbeatSweep = heartbeatSweep;
+    }
+    public boolean isHeartbeatSweep() {
+        return heartbeatSweep;
+    }
+
+    /**
+     * Ping and upgrade timeouts are kept by timer queues
+     * of Netty event loops and run by event loop of client channel
+     * instead of single global timer thread.
+     * Ack timeouts aren't affected, they are checked by
+     * own sweep thread of {@link com.corundumstudio.socketio.ack.AckManager}.
+     *
+     * Default is <code>false</code>
+     *
+     * @param eventLoopScheduler - <code>true</code> to use {@link com.corundumstudio.socketio.scheduler.EventLoopScheduler}
+     */
+    public void setEventLoopScheduler(boolean eventLoopScheduler) {
+        this.eventLoopScheduler = eventLoopScheduler;
+    }
+    public boolean isEventLoopScheduler() {
+        return eventLoopScheduler;
+    }
+
+    /**
+     * Max amount of handshakes per second accepted by server.
+     * Excess handshakes are queued or rejected with
+     * <code>503 Service Unavailable</code> and <code>Retry-After</code> header,
+     * so existing sessions are served during reconnect storms.
+     *
+     * Default is <code>0</code> - no limit
+     *
+     * @param handshakeRateLimit - handshakes per second
+     */
+    public void setHandshakeRateLimit(int handshakeRateLimit) {
+        this.handshakeRateLimit = handshakeRateLimit;
+    }
+    public int getHandshakeRateLimit() {
+        return handshakeRateLimit;
+    }
+
+    /**
+     * Max amount of handshakes per second from one IP address
+     *
+     * Default is <code>0</code> - no limit
+     *
+     * @param handshakeRateLimitPerIp - handshakes per second
+     */
+    public void setHandshakeRateLimitPerIp(int handshakeRateLimitPerIp) {
+        this.handshakeRateLimitPerIp = handshakeRateLimitPerIp;
+    }
+    public int getHandshakeRateLimitPerIp() {
+        return handshakeRateLimitPerIp;
+    }
+
+    /**
+     * Max amount of rate limited handshakes delayed
+     * until rate limit allows them instead of rejection.
+     *
+     * Default is <code>0</code>
+     *
+     * @param handshakeQueueSize - pending handshakes limit
+     */
+    public void setHandshakeQueueSize(int handshakeQueueSize) {
+        this.handshakeQueueSize = handshakeQueueSize;
+    }
+    public int getHandshakeQueueSize() {
+        return handshakeQueueSize;
+    }
+
+    /**
+     * Max random seconds added to <code>Retry-After</code> header
+     * of rejected handshake, so rejected clients don't reconnect at once.
+     *
+     * Default is <code>5</code>
+     *
+     * @param handshakeRetryJitter - jitter in seconds
+     */
+    public void setHandshakeRetryJitter(int handshakeRetryJitter) {
+        this.handshakeRetryJitter = handshakeRetryJitter;
+    }
+    public int getHandshakeRetryJitter() {
+        return handshakeRetryJitter;
+    }
+
+    /**
+     * Binary packet codecs which could be requested by client
+     * with {@link PacketCodec#CODEC_PARAM} handshake parameter.
+     * Clients which don't request codec use {@link JsonSupport}.
+     *
+     * @param packetCodecs - packet codecs
+     */
+    public void setPacketCodecs(PacketCodec ... packetCodecs) {
+        this.packetCodecs = Arrays.asList(packetCodecs);
+    }
+    public List<PacketCodec> getPacketCodecs() {
+        return packetCodecs;
+    }
+
+    /**
+     * @param name - codec name
+     * @return codec or <code>null</code> if it's not found
+     */
+    public PacketCodec getPacketCodec(String name) {
+        for (PacketCodec codec : packetCodecs) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
 }
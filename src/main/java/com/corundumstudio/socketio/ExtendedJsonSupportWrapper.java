@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.protocol.AckArgs;
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.ExtendedJsonSupport;
+
+class ExtendedJsonSupportWrapper extends JsonSupportWrapper implements ExtendedJsonSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtendedJsonSupportWrapper.class);
+
+    private final ExtendedJsonSupport delegate;
+
+    ExtendedJsonSupportWrapper(ExtendedJsonSupport delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        try {
+            return delegate.readAckArgs(src, callback, attachments);
+        } catch (Exception e) {
+            src.reset();
+            log.error("Can't read ack args: " + src.readLine() + " for type: " + callback.getResultClass(), e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        try {
+            return delegate.readValue(namespaceName, src, valueType, attachments);
+        } catch (Exception e) {
+            src.reset();
+            log.error("Can't read value: " + src.readLine() + " for type: " + valueType, e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Event readLazyEvent(String namespaceName, ByteBuf src, List<ByteBuf> attachments) throws IOException {
+        try {
+            return delegate.readLazyEvent(namespaceName, src, attachments);
+        } catch (Exception e) {
+            log.error("Can't read event: " + src.toString(CharsetUtil.UTF_8), e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        try {
+            delegate.writeEvent(out, name, args);
+        } catch (Exception e) {
+            log.error("Can't write event: " + name + " with args: " + args, e);
+            throw new IOException(e);
+        }
+    }
+
+}
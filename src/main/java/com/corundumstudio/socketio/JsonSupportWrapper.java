@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.corundumstudio.socketio.protocol.AckArgs;
+import com.corundumstudio.socketio.protocol.ExtendedJsonSupport;
 import com.corundumstudio.socketio.protocol.JsonSupport;
 
 class JsonSupportWrapper implements JsonSupport {
@@ -37,6 +38,13 @@ class JsonSupportWrapper implements JsonSupport {
         this.delegate = delegate;
     }
 
+    static JsonSupportWrapper wrap(JsonSupport delegate) {
+        if (delegate instanceof ExtendedJsonSupport) {
+            return new ExtendedJsonSupportWrapper((ExtendedJsonSupport) delegate);
+        }
+        return new JsonSupportWrapper(delegate);
+    }
+
     @Override
     public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback) throws IOException {
         try {
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+/**
+ * Action taken when client outbound packets queue reaches its limit
+ *
+ * @see Configuration#setMaxQueuedPackets(int)
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Drop the oldest queued packet to free space for a new one.
+     * Control packets are never dropped, new packet is dropped
+     * if queue contains only control packets.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drop a new packet, queued packets stay untouched
+     */
+    DROP_NEWEST,
+
+    /**
+     * Disconnect the client, queued packets are dropped
+     */
+    DISCONNECT
+
+}
@@ -39,6 +39,10 @@ public class SocketConfig {
 
     private int acceptBackLog = 1024;
 
+    private int writeBufferLowWaterMark = -1;
+
+    private int writeBufferHighWaterMark = -1;
+
     public boolean isTcpNoDelay() {
         return tcpNoDelay;
     }
@@ -88,4 +92,32 @@ public class SocketConfig {
         this.acceptBackLog = acceptBackLog;
     }
 
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+    /**
+     * Channel becomes writable again once its outbound buffer
+     * drops below this amount of bytes.
+     * Both water marks should be set to be applied.
+     *
+     * @param writeBufferLowWaterMark - bytes amount
+     */
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+    /**
+     * Channel becomes not writable once its outbound buffer
+     * exceeds this amount of bytes. Queued packets are not written
+     * to a websocket channel until it becomes writable again.
+     *
+     * @param writeBufferHighWaterMark - bytes amount
+     */
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
 }
@@ -39,6 +39,7 @@ import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.protocol.PacketDecoder;
 import com.corundumstudio.socketio.protocol.PacketEncoder;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.EventLoopScheduler;
 import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.DisconnectMessage;
@@ -102,11 +103,14 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
     public void start(Configuration configuration, NamespacesHub namespacesHub) {
         this.configuration = configuration;
 
-        ackManager = new AckManager(scheduler);
+        if (configuration.isEventLoopScheduler()) {
+            scheduler = new EventLoopScheduler();
+        }
+        ackManager = new AckManager();
 
         JsonSupport jsonSupport = configuration.getJsonSupport();
         PacketEncoder encoder = new PacketEncoder(configuration, jsonSupport);
-        PacketDecoder decoder = new PacketDecoder(jsonSupport, ackManager);
+        PacketDecoder decoder = new PacketDecoder(jsonSupport, ackManager, namespacesHub, configuration.isLazyEventArgs());
 
         String connectPath = configuration.getContext() + "/";
 
@@ -231,6 +235,9 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
         StoreFactory factory = configuration.getStoreFactory();
         factory.shutdown();
         scheduler.shutdown();
+        if (ackManager != null) {
+            ackManager.shutdown();
+        }
     }
 
 }
@@ -18,10 +18,12 @@ package com.corundumstudio.socketio;
 import java.net.SocketAddress;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.store.Store;
 
+import io.netty.util.concurrent.Future;
 
 /**
  * Fully thread-safe.
@@ -58,6 +60,30 @@ public interface SocketIOClient extends ClientOperations, Store {
      */
     void sendEvent(String name, AckCallback<?> ackCallback, Object ... data);
 
+    /**
+     * 发送事件并异步等待ack
+     *
+     * Send event and return future completed by ack result.
+     * Future listeners are notified on client event loop,
+     * i.e. on event loop of last bound channel for polling client.
+     * Timeouts of many futures are delivered to the loop by single task.
+     * Listeners are notified by completing thread only if client has no channel,
+     * e.g. client created outside of server.
+     * Future fails with {@link java.util.concurrent.TimeoutException}
+     * if ack hasn't been received in time or client disconnected.
+     * <code>ByteBuf</code> result is retained for the future
+     * and should be released by the caller.
+     *
+     * @param <T> - ack result type
+     * @param name - event name
+     * @param resultClass - ack result class
+     * @param timeout - ack timeout
+     * @param unit - time unit of timeout
+     * @param data - event data
+     * @return ack result future
+     */
+    <T> Future<T> sendEventAsync(String name, Class<T> resultClass, long timeout, TimeUnit unit, Object ... data);
+
     /**
      * 发送packet与ack回调
      *
@@ -122,4 +148,13 @@ public interface SocketIOClient extends ClientOperations, Store {
      */
     Set<String> getAllRooms();
 
+    /**
+     * Amount of packets waiting to be sent to the client
+     *
+     * @return queued packets amount
+     *
+     * @see Configuration#setMaxQueuedPackets(int)
+     */
+    int getQueuedPacketsCount();
+
 }
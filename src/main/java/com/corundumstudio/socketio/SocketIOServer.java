@@ -21,6 +21,7 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -105,7 +106,7 @@ public class SocketIOServer implements ClientListeners {
      * @return
      */
     public BroadcastOperations getBroadcastOperations() {
-        return new BroadcastOperations(getAllClients(), configCopy.getStoreFactory());
+        return new BroadcastOperations(getAllClients(), configCopy.getStoreFactory(), configCopy.isEventLoopBroadcast());
     }
 
     /**
@@ -120,7 +121,7 @@ public class SocketIOServer implements ClientListeners {
      */
     public BroadcastOperations getRoomOperations(String room) {
         Iterable<SocketIOClient> clients = namespacesHub.getRoomClients(room);
-        return new BroadcastOperations(clients, configCopy.getStoreFactory());
+        return new BroadcastOperations(clients, configCopy.getStoreFactory(), configCopy.isEventLoopBroadcast());
     }
 
     /**
@@ -181,6 +182,10 @@ public class SocketIOServer implements ClientListeners {
         }
         bootstrap.childOption(ChannelOption.SO_KEEPALIVE, config.isTcpKeepAlive());
         bootstrap.childOption(ChannelOption.SO_LINGER, config.getSoLinger());
+        if (config.getWriteBufferLowWaterMark() != -1 && config.getWriteBufferHighWaterMark() != -1) {
+            bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                    new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+        }
 
         bootstrap.option(ChannelOption.SO_REUSEADDR, config.isReuseAddress());
         bootstrap.option(ChannelOption.SO_BACKLOG, config.getAcceptBackLog());
@@ -245,6 +250,11 @@ public class SocketIOServer implements ClientListeners {
         mainNamespace.addEventListener(eventName, eventClass, listener);
     }
 
+    @Override
+    public void addRawEventListener(String eventName, RawEventListener listener) {
+        mainNamespace.addRawEventListener(eventName, listener);
+    }
+
     @Override
     public void addEventInterceptor(EventInterceptor eventInterceptor) {
         mainNamespace.addEventInterceptor(eventInterceptor);
@@ -19,18 +19,22 @@ import com.corundumstudio.socketio.*;
 import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
-import com.corundumstudio.socketio.scheduler.SchedulerKey;
-import com.corundumstudio.socketio.scheduler.SchedulerKey.Type;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.internal.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -40,30 +44,108 @@ public class AckManager implements Disconnectable {
 
     /**
      * 回调的基础单元
+     *
+     * Open-addressing map of callbacks keyed by ack id.
+     * Ack ids of session are monotonic, so id itself is used as hash
+     * and callbacks are spread over the table without collisions.
+     * Callback deadline is kept along with callback, so registration
+     * doesn't allocate anything besides the callback itself.
      */
     class AckEntry {
 
-        // ConcurrentHashMap 用来保存连接的回调函数类
-        final Map<Long, AckCallback<?>> ackCallbacks = PlatformDependent.newConcurrentHashMap();
+        private static final int INITIAL_CAPACITY = 8;
+
+        private long[] indexes;
+        private AckCallback<?>[] callbacks;
+        // deadline relative to AckManager#startNanos, 0 if callback has no timeout
+        private long[] deadlines;
+        private int size;
+
+        private int timeouts;
+        private long nextDeadline = Long.MAX_VALUE;
+        // entry is in timeoutEntries queue
+        private boolean queued;
+
         final AtomicLong ackIndex = new AtomicLong(-1);
 
         /**
          * 把回调函数存入map中，并返回自增index
          * @param callback 回调函数
+         * @param deadline 超时时间, 0 if callback has no timeout
          * @return
          */
-        public long addAckCallback(AckCallback<?> callback) {
+        public long addAckCallback(AckCallback<?> callback, long deadline) {
             long index = ackIndex.incrementAndGet();
-            ackCallbacks.put(index, callback);
+            put(index, callback, deadline);
             return index;
         }
 
-        /**
-         * 获取所有自增id
-         * @return
-         */
-        public Set<Long> getAckIndexes() {
-            return ackCallbacks.keySet();
+        private synchronized void put(long index, AckCallback<?> callback, long deadline) {
+            if (callbacks == null) {
+                indexes = new long[INITIAL_CAPACITY];
+                callbacks = new AckCallback<?>[INITIAL_CAPACITY];
+                deadlines = new long[INITIAL_CAPACITY];
+            } else if ((size + 1) * 4 > callbacks.length * 3) {
+                resize(callbacks.length * 2);
+            }
+
+            int mask = callbacks.length - 1;
+            int slot = (int) index & mask;
+            while (callbacks[slot] != null && indexes[slot] != index) {
+                slot = (slot + 1) & mask;
+            }
+            if (callbacks[slot] == null) {
+                size++;
+            } else if (deadlines[slot] != 0) {
+                timeouts--;
+            }
+            indexes[slot] = index;
+            callbacks[slot] = callback;
+            deadlines[slot] = deadline;
+
+            if (deadline != 0) {
+                timeouts++;
+                nextDeadline = Math.min(nextDeadline, deadline);
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldIndexes = indexes;
+            AckCallback<?>[] oldCallbacks = callbacks;
+            long[] oldDeadlines = deadlines;
+
+            indexes = new long[capacity];
+            callbacks = new AckCallback<?>[capacity];
+            deadlines = new long[capacity];
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldCallbacks.length; i++) {
+                if (oldCallbacks[i] == null) {
+                    continue;
+                }
+                int slot = (int) oldIndexes[i] & mask;
+                while (callbacks[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                indexes[slot] = oldIndexes[i];
+                callbacks[slot] = oldCallbacks[i];
+                deadlines[slot] = oldDeadlines[i];
+            }
+        }
+
+        private int find(long index) {
+            if (callbacks == null) {
+                return -1;
+            }
+            int mask = callbacks.length - 1;
+            int slot = (int) index & mask;
+            while (callbacks[slot] != null) {
+                if (indexes[slot] == index) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
         }
 
         /**
@@ -71,8 +153,12 @@ public class AckManager implements Disconnectable {
          * @param index index
          * @return
          */
-        public AckCallback<?> getAckCallback(long index) {
-            return ackCallbacks.get(index);
+        public synchronized AckCallback<?> getAckCallback(long index) {
+            int slot = find(index);
+            if (slot == -1) {
+                return null;
+            }
+            return callbacks[slot];
         }
 
         /**
@@ -80,8 +166,47 @@ public class AckManager implements Disconnectable {
          * @param index index
          * @return
          */
-        public AckCallback<?> removeCallback(long index) {
-            return ackCallbacks.remove(index);
+        public synchronized AckCallback<?> removeCallback(long index) {
+            int slot = find(index);
+            if (slot == -1) {
+                return null;
+            }
+            return removeAt(slot);
+        }
+
+        /**
+         * Removes callback and shifts back following entries of its probe chain
+         */
+        private AckCallback<?> removeAt(int slot) {
+            AckCallback<?> callback = callbacks[slot];
+            if (deadlines[slot] != 0) {
+                timeouts--;
+            }
+            size--;
+
+            int mask = callbacks.length - 1;
+            int free = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (callbacks[next] == null) {
+                    break;
+                }
+                int home = (int) indexes[next] & mask;
+                // entry can be moved only if its home slot isn't in (free, next] range
+                boolean inRange = free <= next
+                        ? free < home && home <= next
+                        : free < home || home <= next;
+                if (!inRange) {
+                    indexes[free] = indexes[next];
+                    callbacks[free] = callbacks[next];
+                    deadlines[free] = deadlines[next];
+                    free = next;
+                }
+            }
+            callbacks[free] = null;
+            deadlines[free] = 0;
+            return callback;
         }
 
         /**
@@ -92,17 +217,130 @@ public class AckManager implements Disconnectable {
             ackIndex.compareAndSet(-1, index);
         }
 
+        /**
+         * @return <code>true</code> if entry should be added to timeout queue
+         */
+        synchronized boolean markQueued() {
+            if (queued) {
+                return false;
+            }
+            queued = true;
+            return true;
+        }
+
+        /**
+         * Removes expired callbacks
+         *
+         * @return <code>true</code> if entry still has callbacks with timeout
+         */
+        synchronized boolean expire(long now, List<AckCallback<?>> expired) {
+            if (timeouts > 0 && nextDeadline <= now) {
+                nextDeadline = Long.MAX_VALUE;
+                for (int slot = 0; slot < callbacks.length; slot++) {
+                    // removal may shift next entry to the same slot
+                    while (callbacks[slot] != null && deadlines[slot] != 0
+                            && deadlines[slot] <= now) {
+                        expired.add(removeAt(slot));
+                    }
+                    if (callbacks[slot] != null && deadlines[slot] != 0) {
+                        nextDeadline = Math.min(nextDeadline, deadlines[slot]);
+                    }
+                }
+            }
+            if (timeouts == 0) {
+                queued = false;
+            }
+            return queued;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Removes all callbacks
+         */
+        synchronized void removeAll(List<AckCallback<?>> removed) {
+            if (callbacks == null) {
+                return;
+            }
+            for (int slot = 0; slot < callbacks.length; slot++) {
+                if (callbacks[slot] != null) {
+                    removed.add(callbacks[slot]);
+                    callbacks[slot] = null;
+                    deadlines[slot] = 0;
+                }
+            }
+            size = 0;
+            timeouts = 0;
+        }
+
     }
 
     private static final Logger log = LoggerFactory.getLogger(AckManager.class);
 
+    private static final long SWEEP_INTERVAL_MILLIS = 100;
+
     private final ConcurrentMap<UUID, AckEntry> ackEntries = PlatformDependent.newConcurrentHashMap();
 
-    private final CancelableScheduler scheduler;
+    // entries with callbacks awaiting timeout
+    private final Queue<AckEntry> timeoutEntries = new ConcurrentLinkedQueue<AckEntry>();
+    // entries of disconnected sessions awaiting timeout notification
+    private final Queue<AckEntry> disconnectedEntries = new ConcurrentLinkedQueue<AckEntry>();
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
+    private final long startNanos = System.nanoTime();
+    private final EventLoopCompletions completions = new EventLoopCompletions();
+
+    // own thread, so timeout callbacks never run on I/O threads
+    private final ScheduledThreadPoolExecutor sweepExecutor;
+
+    private final Runnable sweepTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                sweep();
+            } finally {
+                // entry added after this check schedules sweep by itself
+                sweepScheduled.set(false);
+                if (!timeoutEntries.isEmpty() || !disconnectedEntries.isEmpty()) {
+                    scheduleSweep();
+                }
+            }
+        }
+    };
 
+    /**
+     * @param scheduler - isn't used
+     * @deprecated ack timeouts are checked by own sweep thread,
+     *          use {@link #AckManager()} and {@link #shutdown()}
+     */
+    @Deprecated
     public AckManager(CancelableScheduler scheduler) {
+        this();
+    }
+
+    public AckManager() {
         super();
-        this.scheduler = scheduler;
+        sweepExecutor = new ScheduledThreadPoolExecutor(1, new DefaultThreadFactory("ackTimeoutSweep", true));
+        // thread stops while there is nothing to sweep
+        sweepExecutor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        sweepExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops ack timeout sweep thread.
+     * Thread stops by itself after 10 seconds without outstanding acks,
+     * so unused manager doesn't keep it.
+     */
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    /**
+     * @return completions of async ack promises batched per event loop
+     */
+    public EventLoopCompletions getCompletions() {
+        return completions;
     }
 
     /**
@@ -139,10 +377,7 @@ public class AckManager implements Disconnectable {
      */
     @SuppressWarnings("unchecked")
     public void onAck(SocketIOClient client, Packet packet) {
-        AckSchedulerKey key = new AckSchedulerKey(Type.ACK_TIMEOUT, client.getSessionId(), packet.getAckId());
-        // todo
-        scheduler.cancel(key);
-        // 移除回调函数
+        // 移除回调函数, its deadline is removed along with it
         AckCallback callback = removeCallback(client.getSessionId(), packet.getAckId());
         if (callback == null) {
             return;
@@ -181,8 +416,22 @@ public class AckManager implements Disconnectable {
         return null;
     }
 
+    /**
+     * Removes callback without its invocation
+     *
+     * @param sessionId - session id
+     * @param index - ack index
+     * @return removed callback or <code>null</code> if it has been already removed
+     */
+    public AckCallback<?> cancelAck(UUID sessionId, long index) {
+        return removeCallback(sessionId, index);
+    }
+
     public AckCallback<?> getCallback(UUID sessionId, long index) {
-        AckEntry ackEntry = getAckEntry(sessionId);
+        AckEntry ackEntry = ackEntries.get(sessionId);
+        if (ackEntry == null) {
+            return null;
+        }
         return ackEntry.getAckCallback(index);
     }
 
@@ -195,63 +444,97 @@ public class AckManager implements Disconnectable {
     public long registerAck(UUID sessionId, AckCallback<?> callback) {
         AckEntry ackEntry = getAckEntry(sessionId);
         ackEntry.initAckIndex(0);
-        long index = ackEntry.addAckCallback(callback);
+
+        long deadline = 0;
+        long timeout = callback.getTimeoutMillis();
+        if (timeout != -1) {
+            deadline = Math.max(1, now() + TimeUnit.MILLISECONDS.toNanos(timeout));
+        }
+        long index = ackEntry.addAckCallback(callback, deadline);
 
         if (log.isDebugEnabled()) {
             log.debug("AckCallback registered with id: {} for client: {}", index, sessionId);
         }
 
-        scheduleTimeout(index, sessionId, callback);
+        if (deadline != 0) {
+            scheduleTimeout(ackEntry);
+        }
 
         return index;
     }
 
+    private long now() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Adds entry to periodic deadline sweep
+     * @param ackEntry
+     */
+    private void scheduleTimeout(AckEntry ackEntry) {
+        if (ackEntry.markQueued()) {
+            timeoutEntries.add(ackEntry);
+        }
+        scheduleSweep();
+    }
+
+    private void scheduleSweep() {
+        if (sweepScheduled.compareAndSet(false, true)) {
+            try {
+                sweepExecutor.schedule(sweepTask, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // ack manager has been shutdown
+                sweepScheduled.set(false);
+                log.debug("Ack timeout sweep isn't scheduled", e);
+            }
+        }
+    }
+
     /**
      * 当超时时调用
-     * @param index
-     * @param sessionId
-     * @param callback
      */
-    private void scheduleTimeout(final long index, final UUID sessionId, AckCallback<?> callback) {
-        if (callback.getTimeout() == -1) {
-            return;
+    private void sweep() {
+        List<AckCallback<?>> expired = new ArrayList<AckCallback<?>>();
+        // all callbacks of disconnected session are notified in one batch
+        for (AckEntry ackEntry = disconnectedEntries.poll(); ackEntry != null; ackEntry = disconnectedEntries.poll()) {
+            ackEntry.removeAll(expired);
         }
-        SchedulerKey key = new AckSchedulerKey(Type.ACK_TIMEOUT, sessionId, index);
-        // 延时调用timeout函数
-        scheduler.scheduleCallback(key, new Runnable() {
-            @Override
-            public void run() {
-                AckCallback<?> cb = removeCallback(sessionId, index);
-                if (cb != null) {
-                    cb.onTimeout();
-                }
+
+        long now = now();
+        for (Iterator<AckEntry> iterator = timeoutEntries.iterator(); iterator.hasNext();) {
+            AckEntry ackEntry = iterator.next();
+            if (!ackEntry.expire(now, expired)) {
+                iterator.remove();
             }
-        }, callback.getTimeout(), TimeUnit.SECONDS);
+        }
+
+        for (AckCallback<?> callback : expired) {
+            try {
+                callback.onTimeout();
+            } catch (Exception e) {
+                log.error("Ack timeout callback error", e);
+            }
+        }
     }
 
     /**
      * 断开连接时调用
+     *
+     * Session entry with all its callbacks is released at once,
+     * timeout callbacks are invoked by next sweep outside of I/O thread.
+     *
      * @param client
      */
     @Override
     public void onDisconnect(ClientHead client) {
         // 移除AckEntry
         AckEntry e = ackEntries.remove(client.getSessionId());
-        if (e == null) {
+        if (e == null || e.isEmpty()) {
             return;
         }
-        // 获取所有的index
-        Set<Long> indexes = e.getAckIndexes();
-        for (Long index : indexes) {
-            AckCallback<?> callback = e.getAckCallback(index);
-            if (callback != null) {
-                // 每个回调函数都触发timeout
-                callback.onTimeout();
-            }
-            // 组装key并取消调度器
-            SchedulerKey key = new AckSchedulerKey(Type.ACK_TIMEOUT, client.getSessionId(), index);
-            scheduler.cancel(key);
-        }
+        disconnectedEntries.add(e);
+        scheduleSweep();
+        // entry is dropped from timeout queue by next sweep
     }
 
 }
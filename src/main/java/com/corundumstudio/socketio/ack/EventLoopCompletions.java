@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Runs promise completions on event loops in batches.
+ * Completions submitted from other threads, e.g. by ack timeout sweep,
+ * are queued per event loop and drained by single task,
+ * so promise listeners are notified without task per promise.
+ */
+public class EventLoopCompletions {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLoopCompletions.class);
+
+    private final ConcurrentMap<EventExecutor, LoopCompletions> loops = PlatformDependent.newConcurrentHashMap();
+
+    public void execute(EventExecutor executor, Runnable completion) {
+        if (executor.inEventLoop()) {
+            completion.run();
+            return;
+        }
+
+        LoopCompletions completions = loops.get(executor);
+        if (completions == null) {
+            completions = new LoopCompletions(executor);
+            LoopCompletions oldCompletions = loops.putIfAbsent(executor, completions);
+            if (oldCompletions != null) {
+                completions = oldCompletions;
+            }
+        }
+        completions.add(completion);
+    }
+
+    private class LoopCompletions implements Runnable {
+
+        private final EventExecutor executor;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        LoopCompletions(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        void add(Runnable completion) {
+            queue.add(completion);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // event loop has been shutdown
+                    loops.remove(executor, this);
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            // completion added after this point schedules new drain
+            scheduled.set(false);
+            Runnable completion;
+            while ((completion = queue.poll()) != null) {
+                try {
+                    completion.run();
+                } catch (Exception e) {
+                    log.error("Promise completion error", e);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import java.util.concurrent.TimeoutException;
+
+import com.corundumstudio.socketio.AckCallback;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Ack callback which completes {@link Promise} with result
+ * or fails it with {@link TimeoutException}.
+ * Timeout is defined in milliseconds.
+ *
+ * Reference counted result, e.g. <code>ByteBuf</code> bound to binary attachment,
+ * is retained since promise outlives ack packet,
+ * it should be released by consumer of the promise.
+ *
+ * Promise may be completed through {@link EventLoopCompletions},
+ * so completions from ack timeout sweep are batched per event loop.
+ *
+ * @param <T> - ack result type
+ */
+public class PromiseAckCallback<T> extends AckCallback<T> {
+
+    private final Promise<T> promise;
+    private final long timeoutMillis;
+    private final EventExecutor executor;
+    private final EventLoopCompletions completions;
+
+    public PromiseAckCallback(Class<T> resultClass, long timeoutMillis, Promise<T> promise) {
+        this(resultClass, timeoutMillis, promise, null, null);
+    }
+
+    /**
+     * @param resultClass - ack result class
+     * @param timeoutMillis - ack timeout
+     * @param promise - promise to complete
+     * @param executor - event loop of promise, may be <code>null</code> to complete it by calling thread
+     * @param completions - batches completions on event loop
+     */
+    public PromiseAckCallback(Class<T> resultClass, long timeoutMillis, Promise<T> promise,
+                                EventExecutor executor, EventLoopCompletions completions) {
+        super(resultClass);
+        this.timeoutMillis = timeoutMillis;
+        this.promise = promise;
+        this.executor = executor;
+        this.completions = completions;
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public void onSuccess(final T result) {
+        // attachment view is released once ack packet is handled
+        ReferenceCountUtil.retain(result);
+        complete(new Runnable() {
+            @Override
+            public void run() {
+                if (!promise.trySuccess(result)) {
+                    ReferenceCountUtil.release(result);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onTimeout() {
+        complete(new Runnable() {
+            @Override
+            public void run() {
+                promise.tryFailure(new TimeoutException("Ack hasn't been received in " + timeoutMillis + " ms"));
+            }
+        });
+    }
+
+    private void complete(Runnable completion) {
+        if (executor == null || completions == null) {
+            completion.run();
+        } else {
+            completions.execute(executor, completion);
+        }
+    }
+
+}
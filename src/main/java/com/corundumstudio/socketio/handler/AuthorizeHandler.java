@@ -18,6 +18,7 @@ package com.corundumstudio.socketio.handler;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.List;
@@ -41,6 +42,7 @@ import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.namespace.NamespacesHub;
 import com.corundumstudio.socketio.protocol.AuthPacket;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.PacketType;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
 import com.corundumstudio.socketio.scheduler.SchedulerKey;
@@ -86,6 +88,8 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
     private final DisconnectableHub disconnectable;
     private final AckManager ackManager;
     private final ClientsBox clientsBox;
+    private final HeartbeatSweeper heartbeatSweeper;
+    private final HandshakeAdmission handshakeAdmission;
 
     public AuthorizeHandler(String connectPath, CancelableScheduler scheduler, Configuration configuration, NamespacesHub namespacesHub, StoreFactory storeFactory,
             DisconnectableHub disconnectable, AckManager ackManager, ClientsBox clientsBox) {
@@ -98,6 +102,17 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
         this.disconnectable = disconnectable;
         this.ackManager = ackManager;
         this.clientsBox = clientsBox;
+        if (configuration.isHeartbeatSweep()) {
+            this.heartbeatSweeper = new HeartbeatSweeper(configuration.getPingTimeout() + configuration.getPingInterval(),
+                                                            TimeUnit.MILLISECONDS);
+        } else {
+            this.heartbeatSweeper = null;
+        }
+        if (HandshakeAdmission.isEnabled(configuration)) {
+            this.handshakeAdmission = new HandshakeAdmission(configuration);
+        } else {
+            this.handshakeAdmission = null;
+        }
     }
 
     /**
@@ -107,7 +122,7 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
      */
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception {
-        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, ctx.channel());
+        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, ctx.channel(), ctx.channel().eventLoop());
         disconnectScheduler.schedule(key, new Runnable() {
             @Override
             public void run() {
@@ -139,18 +154,71 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
             // 获取sid
             List<String> sid = queryDecoder.parameters().get("sid");
             if (queryDecoder.path().equals(connectPath) && sid == null) {
-                // 获取origin
-                String origin = req.headers().get(HttpHeaderNames.ORIGIN);
-                if (!authorize(ctx, channel, origin, queryDecoder.parameters(), req)) {
-                    req.release();
-                    return;
+                if (handshakeAdmission != null) {
+                    admit(ctx, req, queryDecoder);
+                } else {
+                    handshake(ctx, req, queryDecoder);
                 }
-                // forward message to polling or websocket handler to bind channel
+                return;
             }
         }
         ctx.fireChannelRead(msg);
     }
 
+    private void handshake(ChannelHandlerContext ctx, FullHttpRequest req, QueryStringDecoder queryDecoder) throws IOException {
+        // 获取origin
+        String origin = req.headers().get(HttpHeaderNames.ORIGIN);
+        if (!authorize(ctx, ctx.channel(), origin, queryDecoder.parameters(), req)) {
+            req.release();
+            return;
+        }
+        // forward message to polling or websocket handler to bind channel
+        ctx.fireChannelRead(req);
+    }
+
+    /**
+     * Handshake is processed, delayed or rejected
+     * with <code>503</code> status according to admission rate limits
+     */
+    private void admit(final ChannelHandlerContext ctx, final FullHttpRequest req, final QueryStringDecoder queryDecoder) throws IOException {
+        Channel channel = ctx.channel();
+        InetAddress address = null;
+        if (channel.remoteAddress() instanceof InetSocketAddress) {
+            address = ((InetSocketAddress) channel.remoteAddress()).getAddress();
+        }
+
+        long delay = handshakeAdmission.admit(address);
+        if (delay == 0) {
+            handshake(ctx, req, queryDecoder);
+            return;
+        }
+
+        if (delay == HandshakeAdmission.REJECTED) {
+            HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            res.headers().set(HttpHeaderNames.RETRY_AFTER, handshakeAdmission.getRetryAfter());
+            channel.writeAndFlush(res).addListener(ChannelFutureListener.CLOSE);
+            req.release();
+            log.debug("Handshake rejected by rate limit, ip: {}", address);
+            return;
+        }
+
+        ctx.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                handshakeAdmission.dequeue();
+                if (!ctx.channel().isActive()) {
+                    req.release();
+                    return;
+                }
+                try {
+                    handshake(ctx, req, queryDecoder);
+                } catch (Exception e) {
+                    ctx.fireExceptionCaught(e);
+                }
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * 验证是否符合要求
      * @param ctx
@@ -218,7 +286,24 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
             return false;
         }
 
+        PacketCodec packetCodec = null;
+        String codecName = data.getSingleUrlParam(PacketCodec.CODEC_PARAM);
+        if (codecName != null) {
+            packetCodec = configuration.getPacketCodec(codecName);
+            if (packetCodec == null) {
+                Map<String, Object> errorData = new HashMap<String, Object>();
+                errorData.put("code", 3);
+                errorData.put("message", "Codec unknown");
+
+                channel.attr(EncoderHandler.ORIGIN).set(origin);
+                channel.writeAndFlush(new HttpErrorMessage(errorData));
+                return false;
+            }
+        }
+
         ClientHead client = new ClientHead(sessionId, ackManager, disconnectable, storeFactory, data, clientsBox, transport, disconnectScheduler, configuration);
+        client.setPacketCodec(packetCodec);
+        client.setEventLoop(channel.eventLoop());
         channel.attr(ClientHead.CLIENT).set(client);
         clientsBox.addClient(client);
 
@@ -233,7 +318,10 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
         packet.setData(authPacket);
         client.send(packet);
 
-        client.schedulePingTimeout();
+        client.schedulePingTimeout(channel.eventLoop());
+        if (heartbeatSweeper != null) {
+            heartbeatSweeper.add(client, channel.eventLoop());
+        }
         log.debug("Handshake authorized for sessionId: {}, query params: {} headers: {}", sessionId, params, headers);
         return true;
     }
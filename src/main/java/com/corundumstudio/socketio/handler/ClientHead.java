@@ -22,7 +22,9 @@ import com.corundumstudio.socketio.Transport;
 import com.corundumstudio.socketio.ack.AckManager;
 import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.EncodedPacket;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.PacketType;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
 import com.corundumstudio.socketio.scheduler.SchedulerKey;
@@ -33,6 +35,7 @@ import com.corundumstudio.socketio.transport.NamespaceClient;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.util.AttributeKey;
 import io.netty.util.internal.PlatformDependent;
@@ -41,9 +44,8 @@ import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * TODO
@@ -53,16 +55,28 @@ public class ClientHead {
     private static final Logger log = LoggerFactory.getLogger(ClientHead.class);
 
     public static final AttributeKey<ClientHead> CLIENT = AttributeKey.<ClientHead>valueOf("client");
-
-    private final AtomicBoolean disconnected = new AtomicBoolean();
-    /** 保存namespace 的 client */
-    private final Map<Namespace, NamespaceClient> namespaceClients = PlatformDependent.newConcurrentHashMap();
-    /** 保存transport */
-    private final Map<Transport, TransportState> channels = new HashMap<Transport, TransportState>(2);
+    /** client which transport is bound to channel */
+    public static final AttributeKey<ClientHead> BOUND_CLIENT = AttributeKey.<ClientHead>valueOf("boundClient");
+
+    private static final int TRANSPORTS_COUNT = Transport.values().length;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ClientHead, Map> NAMESPACE_CLIENTS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ClientHead.class, Map.class, "namespaceClients");
+    private static final AtomicReferenceFieldUpdater<ClientHead, Store> STORE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ClientHead.class, Store.class, "store");
+
+    private volatile boolean disconnected;
+    /** 保存namespace 的 client, created on first namespace connect */
+    private volatile Map<Namespace, NamespaceClient> namespaceClients;
+    /** 保存transport, indexed by {@link Transport#ordinal()} */
+    private final TransportState[] channels = new TransportState[TRANSPORTS_COUNT];
     private final HandshakeData handshakeData;
     private final UUID sessionId;
 
-    private final Store store;
+    /** created on first access */
+    private volatile Store store;
+    private final StoreFactory storeFactory;
     private final DisconnectableHub disconnectableHub;
     private final AckManager ackManager;
     private ClientsBox clientsBox;
@@ -70,9 +84,14 @@ public class ClientHead {
     private final Configuration configuration;
     /** 最后的包 */
     private Packet lastBinaryPacket;
+    private PacketCodec packetCodec;
 
     // TODO use lazy set
     private volatile Transport currentTransport;
+    /** event loop of last bound channel, initially of handshake channel */
+    private volatile EventLoop eventLoop;
+    /** 最后活动时间, checked by HeartbeatSweeper */
+    private volatile long lastActivity = System.nanoTime();
 
     public ClientHead(UUID sessionId, AckManager ackManager, DisconnectableHub disconnectable,
             StoreFactory storeFactory, HandshakeData handshakeData, ClientsBox clientsBox, Transport transport, CancelableScheduler disconnectScheduler,
@@ -80,15 +99,20 @@ public class ClientHead {
         this.sessionId = sessionId;
         this.ackManager = ackManager;
         this.disconnectableHub = disconnectable;
-        this.store = storeFactory.createStore(sessionId);
+        this.storeFactory = storeFactory;
         this.handshakeData = handshakeData;
         this.clientsBox = clientsBox;
         this.currentTransport = transport;
         this.disconnectScheduler = disconnectScheduler;
         this.configuration = configuration;
 
-        channels.put(Transport.POLLING, new TransportState());
-        channels.put(Transport.WEBSOCKET, new TransportState());
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = new TransportState();
+        }
+    }
+
+    private TransportState getState(Transport transport) {
+        return channels[transport.ordinal()];
     }
 
     /**
@@ -99,27 +123,35 @@ public class ClientHead {
     public void bindChannel(Channel channel, Transport transport) {
         log.debug("binding channel: {} to transport: {}", channel, transport);
         // 根据transport获取channel的传输信息
-        TransportState state = channels.get(transport);
+        TransportState state = getState(transport);
         // 重新设置transport对应的channel
         Channel prevChannel = state.update(channel);
         if (prevChannel != null) {
-            // 在clientbox中移除channel
-            clientsBox.remove(prevChannel);
+            // 解除原channel的绑定
+            unbind(prevChannel);
         }
-        // 把本channel加入到clientbox中
-        clientsBox.add(channel, this);
+        // 把client绑定到本channel
+        channel.attr(BOUND_CLIENT).set(this);
+        eventLoop = channel.eventLoop();
         // 发送包
         sendPackets(transport, channel);
     }
 
     public void releasePollingChannel(Channel channel) {
-        TransportState state = channels.get(Transport.POLLING);
+        TransportState state = getState(Transport.POLLING);
         if(channel.equals(state.getChannel())) {
-            clientsBox.remove(channel);
+            unbind(channel);
             state.update(null);
         }
     }
 
+    /**
+     * Channel may be already bound to other client
+     */
+    private void unbind(Channel channel) {
+        channel.attr(BOUND_CLIENT).compareAndSet(this, null);
+    }
+
     public String getOrigin() {
         return handshakeData.getHttpHeaders().get(HttpHeaderNames.ORIGIN);
     }
@@ -132,12 +164,27 @@ public class ClientHead {
      * 取消延时函数
      */
     public void cancelPingTimeout() {
+        if (configuration.isHeartbeatSweep()) {
+            return;
+        }
         SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId);
         disconnectScheduler.cancel(key);
     }
 
     public void schedulePingTimeout() {
-        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId);
+        schedulePingTimeout(getEventLoop());
+    }
+
+    /**
+     * @param eventLoop - event loop to run ping timeout on,
+     *          used during handshake while transport channel isn't bound yet
+     */
+    public void schedulePingTimeout(EventLoop eventLoop) {
+        if (configuration.isHeartbeatSweep()) {
+            lastActivity = System.nanoTime();
+            return;
+        }
+        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId, eventLoop);
         disconnectScheduler.schedule(key, new Runnable() {
             @Override
             public void run() {
@@ -150,15 +197,160 @@ public class ClientHead {
         }, configuration.getPingTimeout() + configuration.getPingInterval(), TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * @return event loop of current transport channel,
+     *          event loop of last bound channel if polling channel isn't bound now
+     *          or <code>null</code> if client has no channel yet
+     */
+    public EventLoop getEventLoop() {
+        Channel channel = getState(getCurrentTransport()).getChannel();
+        if (channel == null) {
+            return eventLoop;
+        }
+        return channel.eventLoop();
+    }
+
+    void setEventLoop(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of last ping or message
+     */
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
     public ChannelFuture send(Packet packet, Transport transport) {
-        TransportState state = channels.get(transport);
-        state.getPacketsQueue().add(packet);
+        Channel channel = enqueue(packet, transport);
+        if (channel == null) {
+            return null;
+        }
+        return sendPackets(transport, channel);
+    }
+
+    /**
+     * Adds packet to the transport queue without writing it to the channel.
+     *
+     * @param packet - packet to send
+     * @param transport - transport to use
+     * @return channel which the queue should be written to,
+     *          or <code>null</code> if packets will be sent later
+     */
+    public Channel enqueue(Packet packet, Transport transport) {
+        TransportState state = getState(transport);
+        PacketsQueue queue = state.getPacketsQueue();
+
+        EncodedPacket encodedPacket = packet.getEncodedPacket();
+        if (encodedPacket != null) {
+            // released by encoder after write
+            encodedPacket.retain();
+        }
+        int limit = configuration.getMaxQueuedPackets();
+        if (limit > 0 && isQueueLimited(packet)) {
+            if (!offerLimited(queue, packet, limit)) {
+                releasePacket(packet);
+                return null;
+            }
+        } else {
+            queue.add(packet);
+        }
 
         Channel channel = state.getChannel();
         if (channel == null
                 || (transport == Transport.POLLING && channel.attr(EncoderHandler.WRITE_ONCE).get() != null)) {
             return null;
         }
+        return channel;
+    }
+
+    /**
+     * Adds packet to the queue applying slow consumer policy
+     * until it fits to the limit
+     *
+     * @return <code>true</code> if packet was added
+     */
+    private boolean offerLimited(PacketsQueue queue, Packet packet, int limit) {
+        while (!queue.offer(packet, limit)) {
+            if (!applySlowConsumerPolicy(queue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies slow consumer policy to a full queue
+     *
+     * @return <code>true</code> if new packet should be offered to the queue again
+     */
+    private boolean applySlowConsumerPolicy(Queue<Packet> queue) {
+        switch (configuration.getSlowConsumerPolicy()) {
+        case DROP_OLDEST:
+            Packet oldest = removeOldestLimited(queue);
+            if (oldest == null) {
+                log.debug("Outbound queue limit reached by control packets, new packet dropped for: {}", sessionId);
+                return false;
+            }
+            releasePacket(oldest);
+            log.debug("Outbound queue limit reached, the oldest packet dropped for: {}", sessionId);
+            return true;
+        case DROP_NEWEST:
+            log.debug("Outbound queue limit reached, new packet dropped for: {}", sessionId);
+            return false;
+        case DISCONNECT:
+            log.debug("Outbound queue limit reached, disconnecting: {}", sessionId);
+            if (isConnected()) {
+                Packet packet;
+                while ((packet = queue.poll()) != null) {
+                    releasePacket(packet);
+                }
+                disconnect();
+            }
+            return false;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Control packets are kept in the queue
+     *
+     * @return removed packet or <code>null</code> if there is no limited packet
+     */
+    private Packet removeOldestLimited(Queue<Packet> queue) {
+        for (Packet packet : queue) {
+            // remove is atomic, packet may be polled by encoder concurrently
+            if (isQueueLimited(packet) && queue.remove(packet)) {
+                return packet;
+            }
+        }
+        return null;
+    }
+
+    private boolean isQueueLimited(Packet packet) {
+        return packet.getType() == PacketType.MESSAGE
+                && packet.getSubType() != PacketType.CONNECT
+                && packet.getSubType() != PacketType.DISCONNECT;
+    }
+
+    private void releasePacket(Packet packet) {
+        if (packet != null && packet.getEncodedPacket() != null) {
+            packet.getEncodedPacket().release();
+        }
+    }
+
+    /**
+     * Writes queued packets of transport to its channel
+     *
+     * @param transport - transport to write
+     * @return write future or <code>null</code> if transport channel doesn't exist
+     */
+    public ChannelFuture sendPackets(Transport transport) {
+        Channel channel = getState(transport).getChannel();
+        if (channel == null) {
+            return null;
+        }
         return sendPackets(transport, channel);
     }
 
@@ -177,8 +369,9 @@ public class ClientHead {
      * @param client
      */
     public void removeNamespaceClient(NamespaceClient client) {
-        namespaceClients.remove(client.getNamespace());
-        if (namespaceClients.isEmpty()) {
+        Map<Namespace, NamespaceClient> clients = namespaceClients();
+        clients.remove(client.getNamespace());
+        if (clients.isEmpty()) {
             disconnectableHub.onDisconnect(this);
         }
     }
@@ -189,21 +382,42 @@ public class ClientHead {
      * @return
      */
     public NamespaceClient getChildClient(Namespace namespace) {
-        return namespaceClients.get(namespace);
+        Map<Namespace, NamespaceClient> clients = namespaceClients;
+        if (clients == null) {
+            return null;
+        }
+        return clients.get(namespace);
     }
 
     public NamespaceClient addNamespaceClient(Namespace namespace) {
         NamespaceClient client = new NamespaceClient(this, namespace);
-        namespaceClients.put(namespace, client);
+        namespaceClients().put(namespace, client);
         return client;
     }
 
+    @SuppressWarnings("unchecked")
+    private Map<Namespace, NamespaceClient> namespaceClients() {
+        Map<Namespace, NamespaceClient> clients = namespaceClients;
+        if (clients == null) {
+            // most clients are connected to a single namespace
+            clients = PlatformDependent.newConcurrentHashMap(2);
+            if (!NAMESPACE_CLIENTS_UPDATER.compareAndSet(this, null, clients)) {
+                clients = namespaceClients;
+            }
+        }
+        return clients;
+    }
+
     public Set<Namespace> getNamespaces() {
-        return namespaceClients.keySet();
+        Map<Namespace, NamespaceClient> clients = namespaceClients;
+        if (clients == null) {
+            return Collections.emptySet();
+        }
+        return clients.keySet();
     }
 
     public boolean isConnected() {
-        return !disconnected.get();
+        return !disconnected;
     }
 
     /**
@@ -213,15 +427,59 @@ public class ClientHead {
         // 取消延时ping
         cancelPingTimeout();
         // 设置断开连接为true
-        disconnected.set(true);
+        disconnected = true;
         // 依次调用client.onDisconnect();
-        for (NamespaceClient client : namespaceClients.values()) {
-            client.onDisconnect();
+        Map<Namespace, NamespaceClient> clients = namespaceClients;
+        if (clients != null) {
+            for (NamespaceClient client : clients.values()) {
+                client.onDisconnect();
+            }
         }
         // 依次移除channel
-        for (TransportState state : channels.values()) {
+        for (TransportState state : channels) {
             if (state.getChannel() != null) {
-                clientsBox.remove(state.getChannel());
+                unbind(state.getChannel());
+            }
+        }
+        releaseSharedPackets();
+        // 释放未完成的二进制包
+        Packet binaryPacket = lastBinaryPacket;
+        if (binaryPacket != null) {
+            lastBinaryPacket = null;
+            binaryPacket.releaseAttachments();
+        }
+    }
+
+    /**
+     * Releases shared encoded packets which will be never sent.
+     * Pending packets of an active channel are released once it's closed.
+     */
+    private void releaseSharedPackets() {
+        for (TransportState state : channels) {
+            final Queue<Packet> queue = state.peekPacketsQueue();
+            if (queue == null) {
+                continue;
+            }
+            Channel channel = state.getChannel();
+            if (channel != null && channel.isActive()) {
+                channel.closeFuture().addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        releaseSharedPackets(queue);
+                    }
+                });
+            } else {
+                releaseSharedPackets(queue);
+            }
+        }
+    }
+
+    private void releaseSharedPackets(Queue<Packet> queue) {
+        for (Packet packet : queue) {
+            EncodedPacket encodedPacket = packet.getEncodedPacket();
+            // remove is atomic, so packet polled by encoder concurrently is not released twice
+            if (encodedPacket != null && queue.remove(packet)) {
+                encodedPacket.release();
             }
         }
     }
@@ -256,7 +514,7 @@ public class ClientHead {
     }
 
     public boolean isChannelOpen() {
-        for (TransportState state : channels.values()) {
+        for (TransportState state : channels) {
             if (state.getChannel() != null
                     && state.getChannel().isActive()) {
                 return true;
@@ -266,7 +524,14 @@ public class ClientHead {
     }
 
     public Store getStore() {
-        return store;
+        Store s = store;
+        if (s == null) {
+            s = storeFactory.createStore(sessionId);
+            if (!STORE_UPDATER.compareAndSet(this, null, s)) {
+                s = store;
+            }
+        }
+        return s;
     }
 
     /**
@@ -276,7 +541,7 @@ public class ClientHead {
      * @return
      */
     public boolean isTransportChannel(Channel channel, Transport transport) {
-        TransportState state = channels.get(transport);
+        TransportState state = getState(transport);
         if (state.getChannel() == null) {
             return false;
         }
@@ -288,12 +553,12 @@ public class ClientHead {
      * @param currentTransport
      */
     public void upgradeCurrentTransport(Transport currentTransport) {
-        TransportState state = channels.get(currentTransport);
+        TransportState state = getState(currentTransport);
 
-        for (Entry<Transport, TransportState> entry : channels.entrySet()) {
-            if (!entry.getKey().equals(currentTransport)) {
+        for (Transport transport : Transport.values()) {
+            if (!transport.equals(currentTransport)) {
 
-                Queue<Packet> queue = entry.getValue().getPacketsQueue();
+                PacketsQueue queue = getState(transport).getPacketsQueue();
                 state.setPacketsQueue(queue);
 
                 sendPackets(currentTransport, state.getChannel());
@@ -308,8 +573,32 @@ public class ClientHead {
         return currentTransport;
     }
 
+    /**
+     * Amount of packets waiting to be sent to the client
+     *
+     * @return queued packets amount
+     */
+    public int getQueuedPacketsCount() {
+        Queue<Packet> queue = getState(getCurrentTransport()).peekPacketsQueue();
+        if (queue == null) {
+            return 0;
+        }
+        return queue.size();
+    }
+
     public Queue<Packet> getPacketsQueue(Transport transport) {
-        return channels.get(transport).getPacketsQueue();
+        return getState(transport).getPacketsQueue();
+    }
+
+    /**
+     * @param packetCodec - binary codec negotiated during handshake,
+     *          <code>null</code> if packets are encoded as text
+     */
+    public void setPacketCodec(PacketCodec packetCodec) {
+        this.packetCodec = packetCodec;
+    }
+    public PacketCodec getPacketCodec() {
+        return packetCodec;
     }
 
     public void setLastBinaryPacket(Packet lastBinaryPacket) {
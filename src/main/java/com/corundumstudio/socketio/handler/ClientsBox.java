@@ -15,21 +15,18 @@
  */
 package com.corundumstudio.socketio.handler;
 
-import io.netty.channel.Channel;
-import io.netty.util.internal.PlatformDependent;
-
-import java.util.Map;
 import java.util.UUID;
 
 import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.misc.SessionIdMap;
+import com.corundumstudio.socketio.misc.SessionIds;
 
 /**
  * todo
  */
 public class ClientsBox {
 
-    private final Map<UUID, ClientHead> uuid2clients = PlatformDependent.newConcurrentHashMap();
-    private final Map<Channel, ClientHead> channel2clients = PlatformDependent.newConcurrentHashMap();
+    private final SessionIdMap<ClientHead> uuid2clients = new SessionIdMap<ClientHead>();
 
     // TODO use storeFactory
     public HandshakeData getHandshakeData(UUID sessionId) {
@@ -53,17 +50,20 @@ public class ClientsBox {
         return uuid2clients.get(sessionId);
     }
 
-    public void add(Channel channel, ClientHead clientHead) {
-        channel2clients.put(channel, clientHead);
-    }
-
-    public void remove(Channel channel) {
-        channel2clients.remove(channel);
-    }
-
-
-    public ClientHead get(Channel channel) {
-        return channel2clients.get(channel);
+    /**
+     * Finds client by <code>sid</code> request parameter.
+     * Canonical session id is looked up without parsing allocations.
+     *
+     * @param sid - session id parameter
+     * @return client or <code>null</code> if session isn't registered
+     * @throws IllegalArgumentException - if sid isn't valid session id
+     */
+    public ClientHead get(String sid) {
+        if (SessionIds.isCanonical(sid)) {
+            return uuid2clients.get(SessionIds.parseMostSignificantBits(sid),
+                                        SessionIds.parseLeastSignificantBits(sid));
+        }
+        return uuid2clients.get(UUID.fromString(sid));
     }
 
 }
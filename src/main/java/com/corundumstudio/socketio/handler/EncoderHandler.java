@@ -19,15 +19,11 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.List;
 import java.util.Queue;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
-import io.netty.util.concurrent.Future;
-import io.netty.util.concurrent.GenericFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,14 +34,15 @@ import com.corundumstudio.socketio.messages.HttpMessage;
 import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.messages.XHROptionsMessage;
 import com.corundumstudio.socketio.messages.XHRPostMessage;
+import com.corundumstudio.socketio.protocol.EncodedPacket;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.PacketEncoder;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
@@ -65,6 +62,7 @@ import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.PromiseCombiner;
 
 /**
  * 编码发送的handler
@@ -247,39 +245,88 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
     }
 
     private void handleWebsocket(final OutPacketMessage msg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
-        ChannelFutureList writeFutureList = new ChannelFutureList();
-
-        while (true) {
-            Queue<Packet> queue = msg.getClientHead().getPacketsQueue(msg.getTransport());
-            Packet packet = queue.poll();
-            if (packet == null) {
-                writeFutureList.setChannelPromise(promise);
-                break;
-            }
+        // all frames are written first and flushed once
+        PromiseCombiner combiner = new PromiseCombiner(ctx.executor());
+
+        try {
+            // not writable channel is drained again once it becomes writable
+            while (ctx.channel().isWritable()) {
+                Queue<Packet> queue = msg.getClientHead().getPacketsQueue(msg.getTransport());
+                Packet packet = queue.poll();
+                if (packet == null) {
+                    break;
+                }
+
+                PacketCodec codec = msg.getClientHead().getPacketCodec();
+                if (encoder.isCodecPacket(packet, codec)) {
+                    ByteBuf out = encoder.encodeCodecPacket(packet, ctx.alloc(), codec);
+                    if (log.isTraceEnabled()) {
+                        log.trace("Out message: {} sessionId: {}", ByteBufUtil.hexDump(out), msg.getSessionId());
+                    }
+                    combiner.add(ctx.write(new BinaryWebSocketFrame(out)));
+                    continue;
+                }
+
+                EncodedPacket encodedPacket = packet.getEncodedPacket();
+                if (encodedPacket != null) {
+                    writeEncodedPacket(encodedPacket, msg, ctx, combiner);
+                    continue;
+                }
 
-            final ByteBuf out = encoder.allocateBuffer(ctx.alloc());
-            encoder.encodePacket(packet, out, ctx.alloc(), true);
+                final ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+                encoder.encodePacket(packet, out, ctx.alloc(), true);
 
-            WebSocketFrame res = new TextWebSocketFrame(out);
-            if (log.isTraceEnabled()) {
-                log.trace("Out message: {} sessionId: {}", out.toString(CharsetUtil.UTF_8), msg.getSessionId());
+                WebSocketFrame res = new TextWebSocketFrame(out);
+                if (log.isTraceEnabled()) {
+                    log.trace("Out message: {} sessionId: {}", out.toString(CharsetUtil.UTF_8), msg.getSessionId());
+                }
+
+                if (out.isReadable()) {
+                    combiner.add(ctx.write(res));
+                } else {
+                    out.release();
+                }
+
+                for (ByteBuf buf : packet.getAttachments()) {
+                    ByteBuf outBuf = encoder.allocateBuffer(ctx.alloc());
+                    outBuf.writeByte(4);
+                    outBuf.writeBytes(buf);
+                    if (log.isTraceEnabled()) {
+                        log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(outBuf), msg.getSessionId());
+                    }
+                    combiner.add(ctx.write(new BinaryWebSocketFrame(outBuf)));
+                }
             }
+        } finally {
+            ctx.flush();
+        }
 
-            if (out.isReadable()) {
-                writeFutureList.add(ctx.channel().writeAndFlush(res));
-            } else {
-                out.release();
+        combiner.finish(promise);
+    }
+
+    /**
+     * Writes packet content shared with other clients.
+     * Only buffer duplicates are passed to the channel so shared content stays untouched.
+     */
+    private void writeEncodedPacket(EncodedPacket encodedPacket, OutPacketMessage msg, ChannelHandlerContext ctx,
+            PromiseCombiner combiner) throws IOException {
+        try {
+            encodedPacket.encode(encoder, ctx.alloc());
+
+            ByteBuf content = encodedPacket.getContent();
+            if (log.isTraceEnabled()) {
+                log.trace("Out message: {} sessionId: {}", content.toString(CharsetUtil.UTF_8), msg.getSessionId());
             }
+            combiner.add(ctx.write(new TextWebSocketFrame(content.retainedDuplicate())));
 
-            for (ByteBuf buf : packet.getAttachments()) {
-                ByteBuf outBuf = encoder.allocateBuffer(ctx.alloc());
-                outBuf.writeByte(4);
-                outBuf.writeBytes(buf);
+            for (ByteBuf frame : encodedPacket.getBinaryFrames()) {
                 if (log.isTraceEnabled()) {
-                    log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(outBuf), msg.getSessionId());
+                    log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(frame), msg.getSessionId());
                 }
-                writeFutureList.add(ctx.channel().writeAndFlush(new BinaryWebSocketFrame(outBuf)));
+                combiner.add(ctx.write(new BinaryWebSocketFrame(frame.retainedDuplicate())));
             }
+        } finally {
+            encodedPacket.release();
         }
     }
 
@@ -298,69 +345,16 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
         Boolean b64 = ctx.channel().attr(EncoderHandler.B64).get();
         if (b64 != null && b64) {
             Integer jsonpIndex = ctx.channel().attr(EncoderHandler.JSONP_INDEX).get();
-            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), 50);
+            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), 50, msg.getClientHead().getPacketCodec());
             String type = "application/javascript";
             if (jsonpIndex == null) {
                 type = "text/plain";
             }
             sendMessage(msg, channel, out, type, promise, HttpResponseStatus.OK);
         } else {
-            encoder.encodePackets(queue, out, ctx.alloc(), 50);
+            encoder.encodePackets(queue, out, ctx.alloc(), 50, msg.getClientHead().getPacketCodec());
             sendMessage(msg, channel, out, "application/octet-stream", promise, HttpResponseStatus.OK);
         }
     }
 
-    /**
-     * Helper class for the handleWebsocket method, handles a list of ChannelFutures and
-     * sets the status of a promise when
-     * - any of the operations fail
-     * - all of the operations succeed
-     * The setChannelPromise method should be called after all the futures are added
-     */
-    private class ChannelFutureList implements GenericFutureListener<Future<Void>> {
-
-        private List<ChannelFuture> futureList = new ArrayList<ChannelFuture>();
-        private ChannelPromise promise = null;
-
-        private void cleanup() {
-            promise = null;
-            for (ChannelFuture f : futureList) f.removeListener(this);
-        }
-
-        private void validate() {
-            boolean allSuccess = true;
-            for (ChannelFuture f : futureList) {
-                if (f.isDone()) {
-                    if (!f.isSuccess()) {
-                        promise.tryFailure(f.cause());
-                        cleanup();
-                        return;
-                    }
-                }
-                else {
-                    allSuccess = false;
-                }
-            }
-            if (allSuccess) {
-                promise.trySuccess();
-                cleanup();
-            }
-        }
-
-        public void add(ChannelFuture f) {
-            futureList.add(f);
-            f.addListener(this);
-        }
-
-        public void setChannelPromise(ChannelPromise p) {
-            promise = p;
-            validate();
-        }
-
-        @Override
-        public void operationComplete(Future<Void> voidFuture) throws Exception {
-            if (promise != null) validate();
-        }
-    }
-
 }
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.corundumstudio.socketio.Configuration;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Handshake admission control by global and per IP token buckets.
+ *
+ * Handshake which exceeds global rate may wait for reserved token
+ * in bounded queue, other handshakes over the limits are rejected.
+ */
+public class HandshakeAdmission {
+
+    /**
+     * Token bucket kept as theoretical arrival time of next token (GCRA).
+     * Bucket allows burst of one second of its rate.
+     */
+    static class TokenBucket {
+
+        private final long interval;
+        private final long tolerance;
+        private long arrival;
+
+        TokenBucket(int ratePerSecond, long now) {
+            this.interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            this.tolerance = interval * ratePerSecond;
+            this.arrival = now;
+        }
+
+        /**
+         * @return <code>0</code> if token acquired or nanos to wait for token
+         */
+        synchronized long tryAcquire(long now) {
+            long next = Math.max(arrival, now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            arrival = next;
+            return 0;
+        }
+
+        /**
+         * Reserves next free token regardless of burst limit
+         *
+         * @return nanos to wait for reserved token
+         */
+        synchronized long reserve(long now) {
+            arrival = Math.max(arrival, now) + interval;
+            return Math.max(0, arrival - now - tolerance);
+        }
+
+        synchronized void release() {
+            arrival -= interval;
+        }
+
+        synchronized long getWait(long now) {
+            return Math.max(0, arrival + interval - now - tolerance);
+        }
+
+        synchronized boolean isIdle(long now) {
+            return arrival <= now;
+        }
+
+    }
+
+    public static final long REJECTED = -1;
+
+    private static final long CLEANUP_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    // max buckets checked by single cleanup on I/O thread
+    private static final int CLEANUP_BATCH = 1024;
+
+    private final TokenBucket global;
+    private final int ratePerIp;
+    private final ConcurrentMap<InetAddress, TokenBucket> ipBuckets = PlatformDependent.newConcurrentHashMap();
+    private final AtomicLong lastCleanup;
+    private final AtomicBoolean cleanupRunning = new AtomicBoolean();
+    // continues scan of previous cleanup, guarded by cleanupRunning
+    private Iterator<TokenBucket> cleanupIterator;
+
+    private final int queueSize;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int retryJitter;
+
+    public HandshakeAdmission(Configuration configuration) {
+        this(configuration, System.nanoTime());
+    }
+
+    HandshakeAdmission(Configuration configuration, long now) {
+        this.lastCleanup = new AtomicLong(now);
+        if (configuration.getHandshakeRateLimit() > 0) {
+            global = new TokenBucket(configuration.getHandshakeRateLimit(), now);
+        } else {
+            global = null;
+        }
+        this.ratePerIp = configuration.getHandshakeRateLimitPerIp();
+        this.queueSize = configuration.getHandshakeQueueSize();
+        this.retryJitter = configuration.getHandshakeRetryJitter();
+    }
+
+    public static boolean isEnabled(Configuration configuration) {
+        return configuration.getHandshakeRateLimit() > 0
+                || configuration.getHandshakeRateLimitPerIp() > 0;
+    }
+
+    /**
+     * Tries to admit handshake.
+     * {@link #dequeue()} should be invoked once queued handshake is processed.
+     *
+     * @param address - client address, may be <code>null</code>
+     * @return <code>0</code> if handshake admitted,
+     *          delay in nanos if handshake is queued
+     *          or {@link #REJECTED}
+     */
+    public long admit(InetAddress address) {
+        return admit(address, System.nanoTime());
+    }
+
+    long admit(InetAddress address, long now) {
+        cleanup(now);
+
+        TokenBucket ipBucket = null;
+        if (ratePerIp > 0 && address != null) {
+            ipBucket = getIpBucket(address, now);
+            if (ipBucket.tryAcquire(now) > 0) {
+                return REJECTED;
+            }
+        }
+
+        if (global == null || global.tryAcquire(now) == 0) {
+            return 0;
+        }
+
+        if (tryEnqueue()) {
+            return Math.max(1, global.reserve(now));
+        }
+        if (ipBucket != null) {
+            ipBucket.release();
+        }
+        return REJECTED;
+    }
+
+    public void dequeue() {
+        queued.decrementAndGet();
+    }
+
+    /**
+     * @return seconds to wait before next handshake attempt
+     *          with random jitter, so rejected clients don't come back at once
+     */
+    public int getRetryAfter() {
+        return getRetryAfter(System.nanoTime());
+    }
+
+    int getRetryAfter(long now) {
+        long wait = 0;
+        if (global != null) {
+            wait = global.getWait(now);
+        }
+        int seconds = (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        if (retryJitter > 0) {
+            seconds += PlatformDependent.threadLocalRandom().nextInt(retryJitter + 1);
+        }
+        return seconds;
+    }
+
+    private boolean tryEnqueue() {
+        while (true) {
+            int current = queued.get();
+            if (current >= queueSize) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private TokenBucket getIpBucket(InetAddress address, long now) {
+        TokenBucket bucket = ipBuckets.get(address);
+        if (bucket == null) {
+            bucket = new TokenBucket(ratePerIp, now);
+            TokenBucket oldBucket = ipBuckets.putIfAbsent(address, bucket);
+            if (oldBucket != null) {
+                bucket = oldBucket;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Drops buckets of addresses which have full bucket again.
+     * Each run checks at most {@link #CLEANUP_BATCH} buckets
+     * and next run continues from the same position.
+     */
+    private void cleanup(long now) {
+        long last = lastCleanup.get();
+        if (now - last < CLEANUP_INTERVAL
+                || !lastCleanup.compareAndSet(last, now)
+                || !cleanupRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<TokenBucket> iterator = cleanupIterator;
+            if (iterator == null) {
+                iterator = ipBuckets.values().iterator();
+            }
+            for (int i = 0; i < CLEANUP_BATCH && iterator.hasNext(); i++) {
+                if (iterator.next().isIdle(now)) {
+                    iterator.remove();
+                }
+            }
+            if (iterator.hasNext()) {
+                cleanupIterator = iterator;
+            } else {
+                cleanupIterator = null;
+            }
+        } finally {
+            cleanupRunning.set(false);
+        }
+    }
+
+}
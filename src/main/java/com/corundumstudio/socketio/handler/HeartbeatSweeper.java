@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Disconnects clients whose last activity is older than ping timeout.
+ *
+ * Clients are checked by periodic task of event loop
+ * they were handshaked on, so client activity costs only
+ * {@link ClientHead#schedulePingTimeout()} field write.
+ */
+public class HeartbeatSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatSweeper.class);
+
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final ConcurrentMap<EventLoop, LoopSweep> sweeps = PlatformDependent.newConcurrentHashMap();
+    private final long timeoutNanos;
+    private final long sweepIntervalMillis;
+
+    public HeartbeatSweeper(long timeout, TimeUnit unit) {
+        this(timeout, unit, SWEEP_INTERVAL_MILLIS);
+    }
+
+    HeartbeatSweeper(long timeout, TimeUnit unit, long sweepIntervalMillis) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+    }
+
+    public void add(final ClientHead client, EventLoop eventLoop) {
+        LoopSweep sweep = sweeps.get(eventLoop);
+        if (sweep == null) {
+            sweep = new LoopSweep();
+            LoopSweep oldSweep = sweeps.putIfAbsent(eventLoop, sweep);
+            if (oldSweep != null) {
+                sweep = oldSweep;
+            } else {
+                eventLoop.scheduleAtFixedRate(sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (eventLoop.inEventLoop()) {
+            sweep.clients.add(client);
+        } else {
+            final LoopSweep loopSweep = sweep;
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    loopSweep.clients.add(client);
+                }
+            });
+        }
+    }
+
+    /**
+     * Clients of single event loop, accessed only by its thread.
+     * Disconnected clients are dropped during sweep.
+     */
+    private class LoopSweep implements Runnable {
+
+        private final List<ClientHead> clients = new ArrayList<ClientHead>();
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                ClientHead client = clients.get(i);
+                if (client.isConnected()
+                        && now - client.getLastActivity() <= timeoutNanos) {
+                    continue;
+                }
+
+                // swap with last one to avoid array shift
+                int last = clients.size() - 1;
+                clients.set(i, clients.get(last));
+                clients.remove(last);
+
+                if (client.isConnected()) {
+                    client.disconnect();
+                    log.debug("{} removed due to ping timeout", client.getSessionId());
+                }
+            }
+        }
+
+    }
+
+}
@@ -68,30 +68,35 @@ public class InPacketHandler extends SimpleChannelInboundHandler<PacketsMessage>
                 if (packet.hasAttachments() && !packet.isAttachmentsLoaded()) {
                     return;
                 }
-                Namespace ns = namespacesHub.get(packet.getNsp());
-                if (ns == null) {
-                    if (packet.getSubType() == PacketType.CONNECT) {
-                        Packet p = new Packet(PacketType.MESSAGE);
-                        p.setSubType(PacketType.ERROR);
-                        p.setNsp(packet.getNsp());
-                        p.setData("Invalid namespace");
-                        client.send(p);
+                try {
+                    Namespace ns = namespacesHub.get(packet.getNsp());
+                    if (ns == null) {
+                        if (packet.getSubType() == PacketType.CONNECT) {
+                            Packet p = new Packet(PacketType.MESSAGE);
+                            p.setSubType(PacketType.ERROR);
+                            p.setNsp(packet.getNsp());
+                            p.setData("Invalid namespace");
+                            client.send(p);
+                            return;
+                        }
+                        log.debug("Can't find namespace for endpoint: {}, sessionId: {} probably it was removed.", packet.getNsp(), client.getSessionId());
                         return;
                     }
-                    log.debug("Can't find namespace for endpoint: {}, sessionId: {} probably it was removed.", packet.getNsp(), client.getSessionId());
-                    return;
-                }
 
-                if (packet.getSubType() == PacketType.CONNECT) {
-                    client.addNamespaceClient(ns);
-                }
+                    if (packet.getSubType() == PacketType.CONNECT) {
+                        client.addNamespaceClient(ns);
+                    }
 
-                NamespaceClient nClient = client.getChildClient(ns);
-                if (nClient == null) {
-                    log.debug("Can't find namespace client in namespace: {}, sessionId: {} probably it was disconnected.", ns.getName(), client.getSessionId());
-                    return;
+                    NamespaceClient nClient = client.getChildClient(ns);
+                    if (nClient == null) {
+                        log.debug("Can't find namespace client in namespace: {}, sessionId: {} probably it was disconnected.", ns.getName(), client.getSessionId());
+                        return;
+                    }
+                    packetListener.onPacket(packet, nClient, message.getTransport());
+                } finally {
+                    // attachments are valid only during listener invocation
+                    packet.releaseAttachments();
                 }
-                packetListener.onPacket(packet, nClient, message.getTransport());
             } catch (Exception ex) {
                 String c = content.toString(CharsetUtil.UTF_8);
                 log.error("Error during data processing. Client sessionId: " + client.getSessionId() + ", data: " + c, ex);
@@ -98,11 +98,17 @@ public class PacketListener {
             if (packet.getSubType() == PacketType.EVENT
                     || packet.getSubType() == PacketType.BINARY_EVENT) {
                 Namespace namespace = namespacesHub.get(packet.getNsp());
-                List<Object> args = Collections.emptyList();
-                if (packet.getData() != null) {
-                    args = packet.getData();
+                if (packet.getData() == null
+                        && packet.getDataSource() != null) {
+                    // raw event arguments are kept in data source only
+                    namespace.onRawEvent(client, packet.getName(), packet.getDataSource(), ackRequest);
+                } else {
+                    List<Object> args = Collections.emptyList();
+                    if (packet.getData() != null) {
+                        args = packet.getData();
+                    }
+                    namespace.onEvent(client, packet.getName(), args, ackRequest);
                 }
-                namespace.onEvent(client, packet.getName(), args, ackRequest);
             }
             break;
         }
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.corundumstudio.socketio.protocol.Packet;
+
+/**
+ * Outbound packets queue with constant-time size
+ */
+public class PacketsQueue extends AbstractQueue<Packet> {
+
+    private static final AtomicIntegerFieldUpdater<PacketsQueue> SIZE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PacketsQueue.class, "size");
+
+    private final Queue<Packet> queue = new ConcurrentLinkedQueue<Packet>();
+    private volatile int size;
+
+    @Override
+    public boolean offer(Packet packet) {
+        queue.offer(packet);
+        SIZE_UPDATER.incrementAndGet(this);
+        return true;
+    }
+
+    /**
+     * Adds packet if queue size is less than limit.
+     * Size is reserved atomically, so concurrent producers can't exceed the limit.
+     *
+     * @param packet - packet to add
+     * @param limit - max queue size
+     * @return <code>true</code> if packet was added
+     */
+    public boolean offer(Packet packet, int limit) {
+        while (true) {
+            int current = size;
+            if (current >= limit) {
+                return false;
+            }
+            if (SIZE_UPDATER.compareAndSet(this, current, current + 1)) {
+                break;
+            }
+        }
+        queue.offer(packet);
+        return true;
+    }
+
+    @Override
+    public Packet poll() {
+        Packet packet = queue.poll();
+        if (packet != null) {
+            SIZE_UPDATER.decrementAndGet(this);
+        }
+        return packet;
+    }
+
+    @Override
+    public Packet peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (queue.remove(o)) {
+            SIZE_UPDATER.decrementAndGet(this);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public Iterator<Packet> iterator() {
+        final Iterator<Packet> iterator = queue.iterator();
+        return new Iterator<Packet>() {
+
+            private Packet current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Packet next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                PacketsQueue.this.remove(current);
+            }
+
+        };
+    }
+
+}
@@ -15,8 +15,7 @@
  */
 package com.corundumstudio.socketio.handler;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.corundumstudio.socketio.protocol.Packet;
 
@@ -28,16 +27,33 @@ import io.netty.channel.Channel;
  */
 public class TransportState {
 
-    /** 等待发送的#{@link Packet} 的队列 */
-    private Queue<Packet> packetsQueue = new ConcurrentLinkedQueue<Packet>();
+    private static final AtomicReferenceFieldUpdater<TransportState, PacketsQueue> QUEUE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TransportState.class, PacketsQueue.class, "packetsQueue");
+
+    /** 等待发送的#{@link Packet} 的队列, created on first use */
+    private volatile PacketsQueue packetsQueue;
     /** channel */
     private Channel channel;
 
-    public void setPacketsQueue(Queue<Packet> packetsQueue) {
+    public void setPacketsQueue(PacketsQueue packetsQueue) {
         this.packetsQueue = packetsQueue;
     }
 
-    public Queue<Packet> getPacketsQueue() {
+    public PacketsQueue getPacketsQueue() {
+        PacketsQueue queue = packetsQueue;
+        if (queue == null) {
+            queue = new PacketsQueue();
+            if (!QUEUE_UPDATER.compareAndSet(this, null, queue)) {
+                queue = packetsQueue;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * @return packets queue or <code>null</code> if nothing was queued yet
+     */
+    public PacketsQueue peekPacketsQueue() {
         return packetsQueue;
     }
 
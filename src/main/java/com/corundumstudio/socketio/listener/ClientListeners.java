@@ -24,6 +24,17 @@ public interface ClientListeners {
 
     <T> void addEventListener(String eventName, Class<T> eventClass, DataListener<T> listener);
 
+    /**
+     * Adds listener which receives event arguments as raw json bytes.
+     * Events handled by raw listeners aren't deserialized
+     * and aren't passed to other listeners and interceptors.
+     * Binary events are always deserialized.
+     *
+     * @param eventName - event name
+     * @param listener - raw listener
+     */
+    void addRawEventListener(String eventName, RawEventListener listener);
+
     void addEventInterceptor(EventInterceptor eventInterceptor);
 
     void addDisconnectListener(DisconnectListener listener);
@@ -30,6 +30,12 @@ public interface DataListener<T> {
      *
      * Invokes when data object received from client
      *
+     * <code>ByteBuf</code> values bound from binary attachments,
+     * including nested ones, are views of the incoming frame
+     * and are released right after this method returns.
+     * Use {@link io.netty.buffer.ByteBuf#retain()} to keep such buffer longer
+     * and release it once it's no longer needed.
+     *
      * @param client - receiver
      * @param data - received object
      * @param ackSender - ack request
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.listener;
+
+import io.netty.buffer.ByteBuf;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.SocketIOClient;
+
+/**
+ * 收到原始事件参数监听者
+ *
+ * Receives event arguments without json deserialization.
+ * Useful for events which are only forwarded to other clients
+ * via {@link com.corundumstudio.socketio.BroadcastOperations#relay(String, ByteBuf)}.
+ *
+ */
+public interface RawEventListener {
+
+    /**
+     * Invokes when event received from client.
+     *
+     * Arguments buffer contains json encoded arguments separated by comma,
+     * e.g. <code>{"a":1},2</code> for <code>["name",{"a":1},2]</code> event.
+     * Buffer is valid only during method invocation,
+     * use {@link ByteBuf#retain()} to keep it longer.
+     * Arguments of clients connected with {@link com.corundumstudio.socketio.protocol.PacketCodec}
+     * are transcoded to json, binary values are passed as base64 strings.
+     *
+     * @param client - receiver
+     * @param args - raw event arguments
+     * @param ackSender - ack request
+     *
+     * @throws Exception
+     */
+    void onData(SocketIOClient client, ByteBuf args, AckRequest ackSender) throws Exception;
+
+}
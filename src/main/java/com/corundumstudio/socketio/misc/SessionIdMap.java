@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent map keyed by 128-bit session id.
+ *
+ * Keys are stored as pairs of longs in open-addressing tables,
+ * so there are neither entry objects nor key objects per session.
+ * Map is split to independently locked stripes.
+ * Reads are lock-free, each stripe is validated by its modification counter
+ * like a seqlock and read under lock only if it was modified concurrently.
+ *
+ * @param <V> - value type
+ */
+public class SessionIdMap<V> {
+
+    private static final int STRIPES = 64;
+
+    /**
+     * Open-addressing table with linear probing.
+     * Slots are read with volatile semantics,
+     * so value is published after its key.
+     */
+    private static final class Table {
+
+        // most and least significant bits of slot key
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<Object> values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new AtomicLongArray(capacity * 2);
+            values = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        int find(long msb, long lsb, int hash) {
+            int slot = hash & mask;
+            // bounded, table could be changed by writer during optimistic read
+            for (int i = 0; i <= mask; i++) {
+                if (values.get(slot) == null) {
+                    return -1;
+                }
+                if (keys.get(slot*2) == msb && keys.get(slot*2 + 1) == lsb) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        Object get(long msb, long lsb, int hash) {
+            int slot = find(msb, lsb, hash);
+            if (slot == -1) {
+                return null;
+            }
+            return values.get(slot);
+        }
+
+    }
+
+    /**
+     * Writers are serialized by stripe lock and use backward-shift deletion.
+     * Readers don't lock unless a writer modified stripe during the read.
+     */
+    private static final class Stripe {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        // incremented before and after each modification, so it's odd while table is modified
+        private volatile int modCount;
+        private int size;
+
+        Object get(long msb, long lsb, int hash) {
+            int count = modCount;
+            if ((count & 1) == 0) {
+                Object value = table.get(msb, lsb, hash);
+                if (modCount == count) {
+                    return value;
+                }
+            }
+            synchronized (this) {
+                return table.get(msb, lsb, hash);
+            }
+        }
+
+        synchronized Object put(long msb, long lsb, int hash, Object value) {
+            modCount++;
+            try {
+                Table t = table;
+                if ((size + 1) * 4 > t.capacity() * 3) {
+                    t = resize(t, t.capacity() * 2);
+                }
+                int slot = hash & t.mask;
+                while (t.values.get(slot) != null) {
+                    if (t.keys.get(slot*2) == msb && t.keys.get(slot*2 + 1) == lsb) {
+                        return t.values.getAndSet(slot, value);
+                    }
+                    slot = (slot + 1) & t.mask;
+                }
+                t.keys.set(slot*2, msb);
+                t.keys.set(slot*2 + 1, lsb);
+                t.values.set(slot, value);
+                size++;
+                return null;
+            } finally {
+                modCount++;
+            }
+        }
+
+        synchronized Object remove(long msb, long lsb, int hash) {
+            Table t = table;
+            int slot = t.find(msb, lsb, hash);
+            if (slot == -1) {
+                return null;
+            }
+            modCount++;
+            try {
+                Object old = t.values.get(slot);
+                size--;
+
+                int mask = t.mask;
+                int free = slot;
+                int next = slot;
+                while (true) {
+                    next = (next + 1) & mask;
+                    if (t.values.get(next) == null) {
+                        break;
+                    }
+                    int home = hash(t.keys.get(next*2), t.keys.get(next*2 + 1)) & mask;
+                    // entry can be moved only if its home slot isn't in (free, next] range
+                    boolean inRange = free <= next
+                            ? free < home && home <= next
+                            : free < home || home <= next;
+                    if (!inRange) {
+                        t.keys.set(free*2, t.keys.get(next*2));
+                        t.keys.set(free*2 + 1, t.keys.get(next*2 + 1));
+                        t.values.set(free, t.values.get(next));
+                        free = next;
+                    }
+                }
+                t.values.set(free, null);
+                return old;
+            } finally {
+                modCount++;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private Table resize(Table oldTable, int capacity) {
+            Table newTable = new Table(capacity);
+            int mask = newTable.mask;
+            for (int i = 0; i < oldTable.capacity(); i++) {
+                Object value = oldTable.values.get(i);
+                if (value == null) {
+                    continue;
+                }
+                long msb = oldTable.keys.get(i*2);
+                long lsb = oldTable.keys.get(i*2 + 1);
+                int slot = hash(msb, lsb) & mask;
+                while (newTable.values.get(slot) != null) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable.keys.set(slot*2, msb);
+                newTable.keys.set(slot*2 + 1, lsb);
+                newTable.values.set(slot, value);
+            }
+            // new table is published fully filled
+            table = newTable;
+            return newTable;
+        }
+
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public SessionIdMap() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    static int hash(long msb, long lsb) {
+        // murmur3 finalizer, session ids from cookies aren't always random
+        long h = msb ^ (lsb * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private Stripe stripe(int hash) {
+        // high bits select stripe, low bits select slot
+        return stripes[(hash >>> 26) & (STRIPES - 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long msb, long lsb) {
+        int hash = hash(msb, lsb);
+        return (V) stripe(hash).get(msb, lsb, hash);
+    }
+
+    public V get(UUID sessionId) {
+        return get(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(UUID sessionId, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long msb = sessionId.getMostSignificantBits();
+        long lsb = sessionId.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        return (V) stripe(hash).put(msb, lsb, hash, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(UUID sessionId) {
+        long msb = sessionId.getMostSignificantBits();
+        long lsb = sessionId.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        return (V) stripe(hash).remove(msb, lsb, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+/**
+ * Parses canonical session id <code>xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx</code>
+ * to most and least significant bits without allocation.
+ */
+public final class SessionIds {
+
+    private static final int LENGTH = 36;
+
+    private SessionIds() {
+    }
+
+    /**
+     * @param sid - session id
+     * @return <code>true</code> if sid is in canonical form of 36 chars
+     */
+    public static boolean isCanonical(CharSequence sid) {
+        if (sid == null || sid.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = sid.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param sid - canonical session id
+     * @return most significant bits
+     */
+    public static long parseMostSignificantBits(CharSequence sid) {
+        return parseHex(sid, 0, 18);
+    }
+
+    /**
+     * @param sid - canonical session id
+     * @return least significant bits
+     */
+    public static long parseLeastSignificantBits(CharSequence sid) {
+        return parseHex(sid, 19, LENGTH);
+    }
+
+    private static long parseHex(CharSequence sid, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = sid.charAt(i);
+            if (c != '-') {
+                value = (value << 4) | Character.digit(c, 16);
+            }
+        }
+        return value;
+    }
+
+}
@@ -37,11 +37,13 @@ import com.corundumstudio.socketio.annotation.ScannerEngine;
 import com.corundumstudio.socketio.listener.*;
 import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.JoinLeaveMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubType;
 import com.corundumstudio.socketio.transport.NamespaceClient;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.internal.PlatformDependent;
 
 /**
@@ -64,6 +66,7 @@ public class Namespace implements SocketIONamespace {
     private final Queue<ConnectListener> connectListeners = new ConcurrentLinkedQueue<ConnectListener>();
     private final Queue<DisconnectListener> disconnectListeners = new ConcurrentLinkedQueue<DisconnectListener>();
     private final Queue<PingListener> pingListeners = new ConcurrentLinkedQueue<PingListener>();
+    private final ConcurrentMap<String, Queue<RawEventListener>> rawEventListeners = PlatformDependent.newConcurrentHashMap();
     private final Queue<EventInterceptor> eventInterceptors = new ConcurrentLinkedQueue<EventInterceptor>();
 
     private final Map<UUID, SocketIOClient> allClients = PlatformDependent.newConcurrentHashMap();
@@ -73,16 +76,20 @@ public class Namespace implements SocketIONamespace {
     private final String name;
     private final AckMode ackMode;
     private final JsonSupport jsonSupport;
+    private final List<PacketCodec> packetCodecs;
     private final StoreFactory storeFactory;
     private final ExceptionListener exceptionListener;
+    private final boolean eventLoopBroadcast;
 
     public Namespace(String name, Configuration configuration) {
         super();
         this.name = name;
         this.jsonSupport = configuration.getJsonSupport();
+        this.packetCodecs = configuration.getPacketCodecs();
         this.storeFactory = configuration.getStoreFactory();
         this.exceptionListener = configuration.getExceptionListener();
         this.ackMode = configuration.getAckMode();
+        this.eventLoopBroadcast = configuration.isEventLoopBroadcast();
     }
 
     public void addClient(SocketIOClient client) {
@@ -106,7 +113,7 @@ public class Namespace implements SocketIONamespace {
             }
         }
         entry.addListener(listener);
-        jsonSupport.addEventMapping(name, eventName, eventClass);
+        addEventMapping(eventName, eventClass);
     }
     
     @Override
@@ -114,7 +121,32 @@ public class Namespace implements SocketIONamespace {
         EventEntry<?> entry = eventListeners.remove(eventName);
         if (entry != null) {
             jsonSupport.removeEventMapping(name, eventName);
+            for (PacketCodec packetCodec : packetCodecs) {
+                packetCodec.removeEventMapping(name, eventName);
+            }
+        }
+        rawEventListeners.remove(eventName);
+    }
+
+    @Override
+    public void addRawEventListener(String eventName, RawEventListener listener) {
+        Queue<RawEventListener> listeners = rawEventListeners.get(eventName);
+        if (listeners == null) {
+            listeners = new ConcurrentLinkedQueue<RawEventListener>();
+            Queue<RawEventListener> oldListeners = rawEventListeners.putIfAbsent(eventName, listeners);
+            if (oldListeners != null) {
+                listeners = oldListeners;
+            }
         }
+        listeners.add(listener);
+    }
+
+    public boolean hasEventListener(String eventName) {
+        return eventListeners.containsKey(eventName);
+    }
+
+    public boolean isRawEvent(String eventName) {
+        return rawEventListeners.containsKey(eventName);
     }
 
     @Override
@@ -129,7 +161,14 @@ public class Namespace implements SocketIONamespace {
             }
         }
         entry.addListener(listener);
+        addEventMapping(eventName, eventClass);
+    }
+
+    private void addEventMapping(String eventName, Class<?>... eventClass) {
         jsonSupport.addEventMapping(name, eventName, eventClass);
+        for (PacketCodec packetCodec : packetCodecs) {
+            packetCodec.addEventMapping(name, eventName, eventClass);
+        }
     }
 
     @Override
@@ -164,6 +203,26 @@ public class Namespace implements SocketIONamespace {
         sendAck(ackRequest);
     }
 
+    public void onRawEvent(NamespaceClient client, String eventName, ByteBuf args, AckRequest ackRequest) {
+        Queue<RawEventListener> listeners = rawEventListeners.get(eventName);
+        if (listeners == null) {
+            return;
+        }
+
+        try {
+            for (RawEventListener listener : listeners) {
+                listener.onData(client, args.duplicate(), ackRequest);
+            }
+        } catch (Exception e) {
+            exceptionListener.onEventException(e, Collections.<Object>emptyList(), client);
+            if (ackMode == AckMode.AUTO_SUCCESS_ONLY) {
+                return;
+            }
+        }
+
+        sendAck(ackRequest);
+    }
+
     private void sendAck(AckRequest ackRequest) {
         if (ackMode == AckMode.AUTO || ackMode == AckMode.AUTO_SUCCESS_ONLY) {
             // send ack response if it not executed
@@ -244,12 +303,12 @@ public class Namespace implements SocketIONamespace {
 
     @Override
     public BroadcastOperations getBroadcastOperations() {
-        return new BroadcastOperations(allClients.values(), storeFactory);
+        return new BroadcastOperations(allClients.values(), storeFactory, eventLoopBroadcast);
     }
 
     @Override
     public BroadcastOperations getRoomOperations(String room) {
-        return new BroadcastOperations(getRoomClients(room), storeFactory);
+        return new BroadcastOperations(getRoomClients(room), storeFactory, eventLoopBroadcast);
     }
 
     @Override
@@ -15,6 +15,10 @@
  */
 package com.corundumstudio.socketio.namespace;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.PlatformDependent;
 
 import java.util.ArrayList;
@@ -34,6 +38,8 @@ public class NamespacesHub {
 
     /** 通过key存储namespace的map */
     private final ConcurrentMap<String, SocketIONamespace> namespaces = PlatformDependent.newConcurrentHashMap();
+    /** namespace名称的字节表示，用于解码时查找 */
+    private volatile NamespaceName[] names = new NamespaceName[0];
     private final Configuration configuration;
 
     public NamespacesHub(Configuration configuration) {
@@ -52,11 +58,39 @@ public class NamespacesHub {
             Namespace oldNamespace = (Namespace) namespaces.putIfAbsent(name, namespace);
             if (oldNamespace != null) {
                 namespace = oldNamespace;
+            } else {
+                updateNames();
             }
         }
         return namespace;
     }
 
+    private synchronized void updateNames() {
+        List<NamespaceName> list = new ArrayList<NamespaceName>();
+        for (String name : namespaces.keySet()) {
+            list.add(new NamespaceName(name));
+        }
+        names = list.toArray(new NamespaceName[list.size()]);
+    }
+
+    /**
+     * Finds registered namespace name by its UTF-8 bytes without creating a String
+     *
+     * @param buf - buffer with name bytes
+     * @param index - name start index
+     * @param length - name bytes length
+     * @return registered name or <code>null</code> if it doesn't exist
+     */
+    public String findName(ByteBuf buf, int index, int length) {
+        for (NamespaceName name : names) {
+            if (name.bytes.readableBytes() == length
+                    && ByteBufUtil.equals(buf, index, name.bytes, 0, length)) {
+                return name.name;
+            }
+        }
+        return null;
+    }
+
     /**
      * 根据room名称获取#{@link SocketIOClient} 迭代器
      * @param room
@@ -87,6 +121,7 @@ public class NamespacesHub {
     public void remove(String name) {
         SocketIONamespace namespace = namespaces.remove(name);
         if (namespace != null) {
+            updateNames();
             namespace.getBroadcastOperations().disconnect();
         }
     }
@@ -99,4 +134,16 @@ public class NamespacesHub {
         return namespaces.values();
     }
 
+    private static class NamespaceName {
+
+        private final String name;
+        private final ByteBuf bytes;
+
+        NamespaceName(String name) {
+            this.name = name;
+            this.bytes = Unpooled.wrappedBuffer(name.getBytes(CharsetUtil.UTF_8));
+        }
+
+    }
+
 }
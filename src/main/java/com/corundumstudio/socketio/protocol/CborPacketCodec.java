@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * CBOR packet codec, requested by client with <code>codec=cbor</code> handshake parameter.
+ * Requires <code>com.fasterxml.jackson.dataformat:jackson-dataformat-cbor</code> dependency.
+ *
+ */
+public class CborPacketCodec extends JacksonPacketCodec {
+
+    public static final String NAME = "cbor";
+
+    public CborPacketCodec(Module... modules) {
+        super(NAME, new CBORFactory(), modules);
+    }
+
+}
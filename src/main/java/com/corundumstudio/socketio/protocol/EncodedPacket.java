@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link Packet} encoded only once and shared between all of its recipients.
+ *
+ * Encoding is done lazily by the first recipient which needs it.
+ * Every queued copy of the packet holds a reference to this object,
+ * the reference should be released after the content was written to the channel.
+ *
+ * Transport specific framing (websocket frames, polling payload headers)
+ * is applied on top of the shared content without re-encoding the packet.
+ */
+public class EncodedPacket extends AbstractReferenceCounted {
+
+    private final Packet packet;
+
+    private volatile boolean encoded;
+    private ByteBuf content;
+    private List<ByteBuf> binaryFrames = Collections.emptyList();
+
+    public EncodedPacket(Packet packet) {
+        this.packet = packet;
+    }
+
+    public Packet getPacket() {
+        return packet;
+    }
+
+    /**
+     * Encodes packet if it hasn't been encoded yet
+     *
+     * @param encoder - packet encoder
+     * @param allocator - allocator used for shared buffers
+     * @throws IOException - in case of serialization error
+     */
+    public void encode(PacketEncoder encoder, ByteBufAllocator allocator) throws IOException {
+        if (encoded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (encoded) {
+                return;
+            }
+
+            ByteBuf buf = encoder.allocateBuffer(allocator);
+            try {
+                encoder.encodePacket(packet, buf, allocator, true);
+            } catch (IOException e) {
+                buf.release();
+                throw e;
+            }
+
+            if (!packet.getAttachments().isEmpty()) {
+                List<ByteBuf> frames = new ArrayList<ByteBuf>(packet.getAttachments().size());
+                for (ByteBuf attachment : packet.getAttachments()) {
+                    ByteBuf frame = encoder.allocateBuffer(allocator);
+                    frame.writeByte(4);
+                    frame.writeBytes(attachment, attachment.readerIndex(), attachment.readableBytes());
+                    frames.add(frame);
+                }
+                binaryFrames = frames;
+            }
+
+            content = buf;
+            encoded = true;
+        }
+    }
+
+    private void releaseDataSource() {
+        ByteBuf dataSource = packet.getDataSource();
+        if (dataSource != null) {
+            packet.setDataSource(null);
+            dataSource.release();
+        }
+    }
+
+    /**
+     * Encoded packet content. Buffer indexes should not be modified,
+     * use {@link ByteBuf#retainedDuplicate()} to pass it to a channel.
+     *
+     * @return encoded content
+     */
+    public ByteBuf getContent() {
+        return content;
+    }
+
+    /**
+     * Binary attachments prefixed by message type byte
+     *
+     * @return binary frames
+     */
+    public List<ByteBuf> getBinaryFrames() {
+        return binaryFrames;
+    }
+
+    @Override
+    protected void deallocate() {
+        releaseDataSource();
+        if (content != null) {
+            content.release();
+        }
+        for (ByteBuf frame : binaryFrames) {
+            frame.release();
+        }
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        return this;
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.corundumstudio.socketio.AckCallback;
+
+/**
+ * Optional extension of {@link JsonSupport} which binds binary attachments,
+ * lazy event arguments and writes event envelopes without intermediate list.
+ *
+ * Implementations of plain {@link JsonSupport} keep working,
+ * {@link PacketDecoder} and {@link PacketEncoder} fall back to
+ * {@link JsonSupport#readValue}, {@link JsonSupport#readAckArgs}
+ * and {@link JsonSupport#writeValue} for them,
+ * binary attachments are inlined as base64 strings in that case.
+ *
+ */
+public interface ExtendedJsonSupport extends JsonSupport {
+
+    /**
+     * Reads ack arguments of binary packet. Placeholders
+     * <code>{"_placeholder":true,"num":N}</code> are resolved to
+     * attachment content during parsing
+     *
+     * @param src - packet data source
+     * @param callback - ack callback
+     * @param attachments - binary attachments
+     * @return ack arguments
+     * @throws IOException - in case of parsing error
+     */
+    AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException;
+
+    /**
+     * Reads value of binary packet. Placeholders
+     * <code>{"_placeholder":true,"num":N}</code> are resolved to
+     * attachment content during parsing
+     *
+     * @param <T> - value type
+     * @param namespaceName - namespace name
+     * @param src - packet data source
+     * @param valueType - value type
+     * @param attachments - binary attachments
+     * @return value
+     * @throws IOException - in case of parsing error
+     */
+    <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType, List<ByteBuf> attachments) throws IOException;
+
+    /**
+     * Reads event name and locates its arguments without binding them.
+     * Each argument is bound on first access to the returned arguments list.
+     * Source and attachments should stay available while arguments are accessed.
+     *
+     * @param namespaceName - namespace name
+     * @param src - event source <code>["name", arg0, arg1, ...]</code>
+     * @param attachments - binary attachments
+     * @return event with lazy arguments
+     * @throws IOException - in case of parsing error
+     */
+    Event readLazyEvent(String namespaceName, ByteBuf src, List<ByteBuf> attachments) throws IOException;
+
+    /**
+     * Writes event envelope <code>["name", arg0, arg1, ...]</code>
+     * directly to the output without building an intermediate list
+     *
+     * @param out - output
+     * @param name - event name, <code>null</code> for ack envelope
+     * @param args - event arguments
+     * @throws IOException - in case of serialization error
+     */
+    void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException;
+
+}
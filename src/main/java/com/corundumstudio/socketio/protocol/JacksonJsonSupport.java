@@ -19,11 +19,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +43,7 @@ import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializer;
@@ -51,7 +52,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.PrimitiveArrayDeserializers;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.UntypedObjectDeserializer;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonArrayFormatVisitor;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatTypes;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrapper;
@@ -62,53 +65,13 @@ import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.fasterxml.jackson.databind.type.ArrayType;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import io.netty.util.internal.PlatformDependent;
 
-public class JacksonJsonSupport implements JsonSupport {
-
-    private class AckArgsDeserializer extends StdDeserializer<AckArgs> {
-
-        private static final long serialVersionUID = 7810461017389946707L;
-
-        protected AckArgsDeserializer() {
-            super(AckArgs.class);
-        }
-
-        @Override
-        public AckArgs deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
-                JsonProcessingException {
-            List<Object> args = new ArrayList<Object>();
-            AckArgs result = new AckArgs(args);
-
-            ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-            JsonNode root = mapper.readTree(jp);
-            AckCallback<?> callback = currentAckClass.get();
-            Iterator<JsonNode> iter = root.iterator();
-            int i = 0;
-            while (iter.hasNext()) {
-                Object val;
-
-                Class<?> clazz = callback.getResultClass();
-                if (callback instanceof MultiTypeAckCallback) {
-                    MultiTypeAckCallback multiTypeAckCallback = (MultiTypeAckCallback) callback;
-                    clazz = multiTypeAckCallback.getResultClasses()[i];
-                }
-
-                JsonNode arg = iter.next();
-                if (arg.isTextual() || arg.isBoolean()) {
-                    clazz = Object.class;
-                }
-
-                val = mapper.treeToValue(arg, clazz);
-                args.add(val);
-                i++;
-            }
-            return result;
-        }
-
-    }
+public class JacksonJsonSupport implements ExtendedJsonSupport {
 
     public static class EventKey {
 
@@ -171,17 +134,13 @@ public class JacksonJsonSupport implements JsonSupport {
             ObjectMapper mapper = (ObjectMapper) jp.getCodec();
             String eventName = jp.nextTextValue();
 
-            EventKey ek = new EventKey(namespaceClass.get(), eventName);
-            if (!eventMapping.containsKey(ek)) {
-                ek = new EventKey(Namespace.DEFAULT_NAME, eventName);
-                if (!eventMapping.containsKey(ek)) {
-                    return new Event(eventName, Collections.emptyList());
-                }
+            List<Class<?>> eventClasses = findEventClasses(namespaceClass.get(), eventName);
+            if (eventClasses == null) {
+                return new Event(eventName, Collections.emptyList());
             }
 
             List<Object> eventArgs = new ArrayList<Object>();
             Event event = new Event(eventName, eventArgs);
-            List<Class<?>> eventClasses = eventMapping.get(ek);
             int i = 0;
             while (true) {
                 JsonToken token = jp.nextToken();
@@ -200,6 +159,191 @@ public class JacksonJsonSupport implements JsonSupport {
             return event;
         }
 
+        List<Class<?>> findEventClasses(String namespaceName, String eventName) {
+            List<Class<?>> eventClasses = eventMapping.get(new EventKey(namespaceName, eventName));
+            if (eventClasses == null) {
+                eventClasses = eventMapping.get(new EventKey(Namespace.DEFAULT_NAME, eventName));
+            }
+            return eventClasses;
+        }
+
+    }
+
+    /**
+     * Event arguments located in source buffer
+     * and bound to declared classes on first access
+     */
+    private class LazyEventArgs extends AbstractList<Object> {
+
+        private final ByteBuf src;
+        private final int[] offsets;
+        private final List<Class<?>> eventClasses;
+        private final List<ByteBuf> attachments;
+        private final Object[] values;
+        private final boolean[] bound;
+
+        LazyEventArgs(ByteBuf src, int[] offsets, int size, List<Class<?>> eventClasses, List<ByteBuf> attachments) {
+            this.src = src;
+            this.offsets = offsets;
+            this.eventClasses = eventClasses;
+            this.attachments = attachments;
+            this.values = new Object[size];
+            this.bound = new boolean[size];
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= values.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + values.length);
+            }
+            if (!bound[index]) {
+                values[index] = bind(index);
+                bound[index] = true;
+            }
+            return values[index];
+        }
+
+        private Object bind(int index) {
+            int start = offsets[index*2];
+            ByteBuf arg = src.slice(start, offsets[index*2 + 1] - start);
+            currentAttachments.set(attachments);
+            try {
+                return objectMapper.readValue((InputStream) new ByteBufInputStream(arg), eventClasses.get(index));
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't read event argument: " + index + " for type: " + eventClasses.get(index), e);
+            } finally {
+                currentAttachments.remove();
+            }
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+    }
+
+    /**
+     * Resolves binary placeholder <code>{"_placeholder":true,"num":N}</code>
+     * to attachment of currently parsed packet.
+     *
+     * @param jp - parser positioned on placeholder object
+     * @return attachment buffer
+     * @throws IOException - if placeholder doesn't match any attachment
+     */
+    private ByteBuf readAttachment(JsonParser jp) throws IOException {
+        boolean placeholder = false;
+        int num = -1;
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String field = jp.getCurrentName();
+            jp.nextToken();
+            if ("_placeholder".equals(field)) {
+                placeholder = jp.getValueAsBoolean();
+            } else if ("num".equals(field)) {
+                num = jp.getValueAsInt(-1);
+            } else {
+                jp.skipChildren();
+            }
+        }
+
+        List<ByteBuf> attachments = currentAttachments.get();
+        if (!placeholder || attachments == null
+                || num < 0 || num >= attachments.size()) {
+            throw new JsonMappingException(jp, "Can't find attachment by index: " + num);
+        }
+        return attachments.get(num);
+    }
+
+    private static boolean isPlaceholderToken(JsonParser jp) {
+        return jp.getCurrentToken() == JsonToken.START_OBJECT
+                || jp.getCurrentToken() == JsonToken.FIELD_NAME;
+    }
+
+    private static byte[] toArray(ByteBuf buf) {
+        byte[] array = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), array);
+        return array;
+    }
+
+    private class AttachmentByteArrayDeserializer extends StdDeserializer<byte[]> {
+
+        private static final long serialVersionUID = -2476925383163526325L;
+
+        @SuppressWarnings("unchecked")
+        private final JsonDeserializer<byte[]> delegate = (JsonDeserializer<byte[]>) PrimitiveArrayDeserializers.forType(byte.class);
+
+        protected AttachmentByteArrayDeserializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public byte[] deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
+                JsonProcessingException {
+            if (isPlaceholderToken(jp)) {
+                return toArray(readAttachment(jp));
+            }
+            return delegate.deserialize(jp, ctxt);
+        }
+
+    }
+
+    /**
+     * Buffer is a view of the packet attachment and valid only during listener invocation.
+     * Consumers which outlive it own their reference: async ack promise retains the buffer
+     * and broadcast ack aggregator copies sampled results.
+     */
+    private class AttachmentByteBufDeserializer extends StdDeserializer<ByteBuf> {
+
+        private static final long serialVersionUID = 5314796823546431580L;
+
+        protected AttachmentByteBufDeserializer() {
+            super(ByteBuf.class);
+        }
+
+        @Override
+        public ByteBuf deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
+                JsonProcessingException {
+            if (isPlaceholderToken(jp)) {
+                return readAttachment(jp).duplicate();
+            }
+            return Unpooled.wrappedBuffer(jp.getBinaryValue(ctxt.getBase64Variant()));
+        }
+
+    }
+
+    /**
+     * Untyped values receive <code>byte[]</code> instead of placeholder map
+     */
+    private class AttachmentObjectDeserializer extends UntypedObjectDeserializer {
+
+        private static final long serialVersionUID = -3402395498427376129L;
+
+        protected AttachmentObjectDeserializer() {
+            super(null, null);
+        }
+
+        @Override
+        protected Object mapObject(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            Object value = super.mapObject(jp, ctxt);
+            List<ByteBuf> attachments = currentAttachments.get();
+            if (attachments == null || !(value instanceof Map)) {
+                return value;
+            }
+
+            Map<?, ?> map = (Map<?, ?>) value;
+            Object num = map.get("num");
+            if (map.size() == 2 && Boolean.TRUE.equals(map.get("_placeholder"))
+                    && num instanceof Integer
+                    && (Integer) num >= 0 && (Integer) num < attachments.size()) {
+                return toArray(attachments.get((Integer) num));
+            }
+            return value;
+        }
+
     }
 
     public static class ByteArraySerializer extends StdSerializer<byte[]>
@@ -267,7 +411,7 @@ public class JacksonJsonSupport implements JsonSupport {
         }
 
         public void clear() {
-            arrays.set(new ArrayList<byte[]>());
+            arrays.get().clear();
         }
 
     }
@@ -295,10 +439,9 @@ public class JacksonJsonSupport implements JsonSupport {
 
     protected final ExBeanSerializerModifier modifier = new ExBeanSerializerModifier();
     protected final ThreadLocal<String> namespaceClass = new ThreadLocal<String>();
-    protected final ThreadLocal<AckCallback<?>> currentAckClass = new ThreadLocal<AckCallback<?>>();
+    protected final ThreadLocal<List<ByteBuf>> currentAttachments = new ThreadLocal<List<ByteBuf>>();
     protected final ObjectMapper objectMapper = new ObjectMapper();
     protected final EventDeserializer eventDeserializer = new EventDeserializer();
-    protected final AckArgsDeserializer ackArgsDeserializer = new AckArgsDeserializer();
 
     protected static final Logger log = LoggerFactory.getLogger(JacksonJsonSupport.class);
 
@@ -317,7 +460,9 @@ public class JacksonJsonSupport implements JsonSupport {
         SimpleModule module = new SimpleModule();
         module.setSerializerModifier(modifier);
         module.addDeserializer(Event.class, eventDeserializer);
-        module.addDeserializer(AckArgs.class, ackArgsDeserializer);
+        module.addDeserializer(byte[].class, new AttachmentByteArrayDeserializer());
+        module.addDeserializer(ByteBuf.class, new AttachmentByteBufDeserializer());
+        module.addDeserializer(Object.class, new AttachmentObjectDeserializer());
         objectMapper.registerModule(module);
 
         objectMapper.setSerializationInclusion(Include.NON_NULL);
@@ -344,8 +489,110 @@ public class JacksonJsonSupport implements JsonSupport {
 
     @Override
     public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback) throws IOException {
-        currentAckClass.set(callback);
-        return objectMapper.readValue((InputStream)src, AckArgs.class);
+        List<Object> args = new ArrayList<Object>();
+        JsonParser jp = objectMapper.getFactory().createParser((InputStream) src);
+        try {
+            if (jp.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonMappingException(jp, "Ack args array expected");
+            }
+
+            Class<?>[] resultClasses = null;
+            if (callback instanceof MultiTypeAckCallback) {
+                resultClasses = ((MultiTypeAckCallback) callback).getResultClasses();
+            }
+
+            // each argument is bound directly from token stream
+            JsonToken token;
+            while ((token = jp.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                int i = args.size();
+                Class<?> clazz = callback.getResultClass();
+                if (resultClasses != null) {
+                    if (i >= resultClasses.length) {
+                        log.debug("Ack has more args than declared in callback: {}", resultClasses.length);
+                        break;
+                    }
+                    clazz = resultClasses[i];
+                }
+                if (token == JsonToken.VALUE_STRING
+                        || token == JsonToken.VALUE_TRUE
+                        || token == JsonToken.VALUE_FALSE) {
+                    clazz = Object.class;
+                }
+                args.add(objectMapper.readValue(jp, clazz));
+            }
+        } finally {
+            jp.close();
+        }
+        return new AckArgs(args);
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        currentAttachments.set(attachments);
+        try {
+            return readValue(namespaceName, src, valueType);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        currentAttachments.set(attachments);
+        try {
+            return readAckArgs(src, callback);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
+    @Override
+    public Event readLazyEvent(String namespaceName, ByteBuf src, List<ByteBuf> attachments) throws IOException {
+        int base = src.readerIndex();
+        JsonParser jp = objectMapper.getFactory().createParser((InputStream) new ByteBufInputStream(src.duplicate()));
+        try {
+            if (jp.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonMappingException(jp, "Event array expected");
+            }
+            String eventName = jp.nextTextValue();
+            List<Class<?>> eventClasses = eventDeserializer.findEventClasses(namespaceName, eventName);
+            if (eventClasses == null) {
+                return new Event(eventName, Collections.emptyList());
+            }
+
+            // argument boundaries are located without binding
+            int[] offsets = new int[eventClasses.size()*2];
+            int size = 0;
+            JsonToken token = jp.nextToken();
+            while (token != null && token != JsonToken.END_ARRAY && size < eventClasses.size()) {
+                offsets[size*2] = base + (int) jp.getTokenLocation().getByteOffset();
+                jp.skipChildren();
+                token = jp.nextToken();
+                int end = base + (int) jp.getTokenLocation().getByteOffset();
+                if (token == null) {
+                    end = src.writerIndex();
+                }
+                offsets[size*2 + 1] = trimSeparator(src, offsets[size*2], end);
+                size++;
+            }
+            if (size == eventClasses.size() && token != null && token != JsonToken.END_ARRAY) {
+                log.debug("Event {} has more args than declared in handler: {}", eventName, eventClasses.size());
+            }
+            return new Event(eventName, new LazyEventArgs(src, offsets, size, eventClasses, attachments));
+        } finally {
+            jp.close();
+        }
+    }
+
+    private int trimSeparator(ByteBuf src, int start, int end) {
+        while (end > start) {
+            byte b = src.getByte(end - 1);
+            if (b != ',' && b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            end--;
+        }
+        return end;
     }
 
     @Override
@@ -354,6 +601,24 @@ public class JacksonJsonSupport implements JsonSupport {
         objectMapper.writeValue((OutputStream)out, value);
     }
 
+    @Override
+    public void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        modifier.getSerializer().clear();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator((OutputStream)out);
+        try {
+            generator.writeStartArray();
+            if (name != null) {
+                generator.writeString(name);
+            }
+            for (Object arg : args) {
+                objectMapper.writeValue(generator, arg);
+            }
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+
     @Override
     public List<byte[]> getArrays() {
         return modifier.getSerializer().getArrays();
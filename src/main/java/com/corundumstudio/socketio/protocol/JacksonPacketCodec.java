@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport.EventKey;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * {@link PacketCodec} based on Jackson binary data format,
+ * e.g. MessagePack or CBOR.
+ *
+ * Packet is encoded as <code>{"type": 2, "nsp": "/", "id": 1, "data": ["name", arg0, arg1]}</code>
+ * object compatible with socket.io-msgpack-parser.
+ * Binary data is written natively by data format.
+ *
+ * <pre>
+ * config.setPacketCodecs(new JacksonPacketCodec("msgpack", new MessagePackFactory()));
+ * </pre>
+ *
+ */
+public class JacksonPacketCodec implements PacketCodec {
+
+    private static final String DEFAULT_NSP = "/";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ByteBuf ARRAY_START = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("[", CharsetUtil.UTF_8));
+    private static final ByteBuf ARRAY_END = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("]", CharsetUtil.UTF_8));
+
+    private final Map<EventKey, List<Class<?>>> eventMapping = PlatformDependent.newConcurrentHashMap();
+
+    private final String name;
+    protected final ObjectMapper objectMapper;
+
+    public JacksonPacketCodec(String name, JsonFactory factory, Module... modules) {
+        this.name = name;
+        this.objectMapper = new ObjectMapper(factory);
+        if (modules != null && modules.length > 0) {
+            objectMapper.registerModules(modules);
+        }
+        init(objectMapper);
+    }
+
+    protected void init(ObjectMapper objectMapper) {
+        objectMapper.setSerializationInclusion(Include.NON_NULL);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(SerializationFeature.WRITE_BIGDECIMAL_AS_PLAIN, true);
+        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void addEventMapping(String namespaceName, String eventName, Class<?>... eventClass) {
+        eventMapping.put(new EventKey(namespaceName, eventName), Arrays.asList(eventClass));
+    }
+
+    @Override
+    public void removeEventMapping(String namespaceName, String eventName) {
+        eventMapping.remove(new EventKey(namespaceName, eventName));
+    }
+
+    @Override
+    public void encode(Packet packet, ByteBufOutputStream out) throws IOException {
+        PacketType type = toCodecType(packet.getSubType());
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator((OutputStream) out);
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("type", type.getValue());
+            generator.writeStringField("nsp", packet.getNsp().isEmpty() ? DEFAULT_NSP : packet.getNsp());
+            if (packet.getAckId() != null) {
+                generator.writeNumberField("id", packet.getAckId());
+            }
+
+            if (type == PacketType.EVENT || type == PacketType.ACK) {
+                generator.writeFieldName("data");
+                generator.writeStartArray();
+                if (type == PacketType.EVENT) {
+                    generator.writeString(packet.getName());
+                }
+                if (packet.getDataSource() != null) {
+                    copyRawArgs(packet.getDataSource(), generator);
+                } else if (packet.getData() != null) {
+                    List<Object> args = packet.getData();
+                    for (Object arg : args) {
+                        objectMapper.writeValue(generator, arg);
+                    }
+                }
+                generator.writeEndArray();
+            } else if (packet.getData() != null) {
+                generator.writeFieldName("data");
+                objectMapper.writeValue(generator, packet.getData());
+            }
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Transcodes raw json arguments of relayed event without binding
+     */
+    private void copyRawArgs(ByteBuf rawArgs, JsonGenerator generator) throws IOException {
+        // components aren't retained by wrapper, so it shouldn't be released
+        ByteBuf src = Unpooled.wrappedBuffer(ARRAY_START.duplicate(), rawArgs.duplicate(), ARRAY_END.duplicate());
+        JsonParser parser = JSON_FACTORY.createParser((InputStream) new ByteBufInputStream(src));
+        try {
+            parser.nextToken();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                generator.copyCurrentStructure(parser);
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Binary subtypes aren't used by codec
+     */
+    private PacketType toCodecType(PacketType subType) {
+        if (subType == PacketType.BINARY_EVENT) {
+            return PacketType.EVENT;
+        }
+        if (subType == PacketType.BINARY_ACK) {
+            return PacketType.ACK;
+        }
+        return subType;
+    }
+
+    /**
+     * Transcodes remaining event arguments to json separated by comma,
+     * the format expected by {@link com.corundumstudio.socketio.listener.RawEventListener}
+     */
+    private ByteBuf readRawArgs(JsonParser jp) throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        boolean read = false;
+        try {
+            JsonGenerator generator = JSON_FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(buffer));
+            try {
+                generator.writeStartArray();
+                JsonToken token;
+                while ((token = jp.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    generator.copyCurrentStructure(jp);
+                }
+                generator.writeEndArray();
+            } finally {
+                generator.close();
+            }
+            read = true;
+        } finally {
+            if (!read) {
+                buffer.release();
+            }
+        }
+        // slice shares reference count, so array brackets are released with it
+        return buffer.slice(1, buffer.readableBytes() - 2);
+    }
+
+    @Override
+    public Packet decode(ByteBufInputStream in, UUID sessionId, AckManager ackManager) throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        boolean decoded = false;
+        JsonParser jp = objectMapper.getFactory().createParser((InputStream) in);
+        try {
+            if (jp.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Packet object expected");
+            }
+
+            PacketType type = null;
+            boolean nspRead = false;
+            boolean idRead = false;
+            boolean dataRead = false;
+            TokenBuffer data = null;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getCurrentName();
+                JsonToken token = jp.nextToken();
+                if ("type".equals(field)) {
+                    type = toCodecType(PacketType.valueOfInner(jp.getValueAsInt()));
+                } else if ("nsp".equals(field)) {
+                    String nsp = jp.getValueAsString(DEFAULT_NSP);
+                    if (!DEFAULT_NSP.equals(nsp)) {
+                        packet.setNsp(nsp);
+                    }
+                    nspRead = true;
+                } else if ("id".equals(field)) {
+                    if (token != JsonToken.VALUE_NULL) {
+                        packet.setAckId(jp.getValueAsLong());
+                    }
+                    idRead = true;
+                } else if ("data".equals(field)) {
+                    if (type != null
+                            && (type != PacketType.EVENT || nspRead)
+                            && (type != PacketType.ACK || idRead)) {
+                        readData(jp, type, packet, sessionId, ackManager);
+                        dataRead = true;
+                    } else {
+                        // fields required for binding come after data, e.g. socket.io-client writes nsp last
+                        data = new TokenBuffer(jp);
+                        data.copyCurrentStructure(jp);
+                    }
+                } else {
+                    jp.skipChildren();
+                }
+            }
+
+            if (type == null) {
+                type = toCodecType(PacketType.valueOfInner(0));
+            }
+            packet.setSubType(type);
+
+            if (data != null) {
+                JsonParser dataParser = data.asParser(jp.getCodec());
+                try {
+                    dataParser.nextToken();
+                    readData(dataParser, type, packet, sessionId, ackManager);
+                } finally {
+                    dataParser.close();
+                }
+            } else if (!dataRead) {
+                if (type == PacketType.EVENT) {
+                    throw new IOException("Event data array expected");
+                }
+                if (type == PacketType.ACK) {
+                    packet.setData(new ArrayList<Object>());
+                }
+            }
+            decoded = true;
+            return packet;
+        } finally {
+            if (!decoded) {
+                // raw event arguments of malformed packet
+                packet.releaseAttachments();
+            }
+            jp.close();
+        }
+    }
+
+    /**
+     * Binds packet data directly from token stream, parser should point to data value
+     */
+    private void readData(JsonParser jp, PacketType type, Packet packet, UUID sessionId, AckManager ackManager) throws IOException {
+        if (type == PacketType.EVENT) {
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY || jp.nextToken() == JsonToken.END_ARRAY) {
+                throw new IOException("Event data array expected");
+            }
+            String eventName = jp.getValueAsString("");
+            jp.skipChildren();
+            packet.setName(eventName);
+
+            List<Class<?>> eventClasses = findEventClasses(packet.getNsp(), eventName);
+            if (eventClasses == null) {
+                // event without data listener, arguments are kept for raw event listeners
+                packet.setDataSource(readRawArgs(jp));
+                return;
+            }
+            List<Object> args = new ArrayList<Object>();
+            JsonToken token;
+            while ((token = jp.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (args.size() < eventClasses.size()) {
+                    args.add(objectMapper.readValue(jp, eventClasses.get(args.size())));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            packet.setData(args);
+        } else if (type == PacketType.ACK) {
+            AckCallback<?> callback = null;
+            if (packet.getAckId() != null) {
+                callback = ackManager.getCallback(sessionId, packet.getAckId());
+            }
+            Class<?>[] resultClasses = null;
+            if (callback instanceof MultiTypeAckCallback) {
+                resultClasses = ((MultiTypeAckCallback) callback).getResultClasses();
+            }
+
+            List<Object> args = new ArrayList<Object>();
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+                jp.skipChildren();
+                packet.setData(args);
+                return;
+            }
+            JsonToken token;
+            while ((token = jp.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                Class<?> clazz = Object.class;
+                if (resultClasses != null) {
+                    if (args.size() < resultClasses.length) {
+                        clazz = resultClasses[args.size()];
+                    }
+                } else if (callback != null) {
+                    clazz = callback.getResultClass();
+                }
+                if (token == JsonToken.VALUE_STRING
+                        || token == JsonToken.VALUE_TRUE
+                        || token == JsonToken.VALUE_FALSE) {
+                    clazz = Object.class;
+                }
+                args.add(objectMapper.readValue(jp, clazz));
+            }
+            packet.setData(args);
+        } else if (type == PacketType.ERROR) {
+            packet.setData(objectMapper.readValue(jp, Object.class));
+        } else {
+            jp.skipChildren();
+        }
+    }
+
+    private List<Class<?>> findEventClasses(String namespaceName, String eventName) {
+        List<Class<?>> eventClasses = eventMapping.get(new EventKey(namespaceName, eventName));
+        if (eventClasses == null) {
+            eventClasses = eventMapping.get(new EventKey(Namespace.DEFAULT_NAME, eventName));
+        }
+        return eventClasses;
+    }
+
+}
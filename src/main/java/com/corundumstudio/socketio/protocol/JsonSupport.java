@@ -40,6 +40,17 @@ public interface JsonSupport {
 
     void writeValue(ByteBufOutputStream out, Object value) throws IOException;
 
+    /**
+     * Binds event arguments to classes.
+     * <code>ByteBuf</code> argument or field mapped to binary attachment
+     * is a view of the packet attachment, it's valid only until
+     * event listener returns unless listener retains it.
+     * <code>byte[]</code> receives a copy.
+     *
+     * @param namespaceName - namespace name
+     * @param eventName - event name
+     * @param eventClass - argument classes
+     */
     void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass);
 
     void removeEventMapping(String namespaceName, String eventName);
@@ -42,6 +42,8 @@ public class Packet implements Serializable {
     private int attachmentsCount;
     private List<ByteBuf> attachments = Collections.emptyList();
 
+    private transient EncodedPacket encodedPacket;
+
     protected Packet() {
     }
 
@@ -89,17 +91,37 @@ public class Packet implements Serializable {
         if (this.nsp.equalsIgnoreCase(namespace)) {
             return this;
         } else {
-            Packet newPacket = new Packet(this.type);
-            newPacket.setAckId(this.ackId);
-            newPacket.setData(this.data);
-            newPacket.setDataSource(this.dataSource);
-            newPacket.setName(this.name);
-            newPacket.setSubType(this.subType);
-            newPacket.setNsp(namespace);
-            newPacket.attachments = this.attachments;
-            newPacket.attachmentsCount = this.attachmentsCount;
-            return newPacket;
+            return copy(namespace);
+        }
+    }
+
+    /**
+     * Creates a copy of {@link Packet} with new namespace set
+     * which is encoded only once for all its recipients.
+     * Caller owns the initial reference of {@link EncodedPacket}
+     * and should release it once the packet was passed to all recipients.
+     * Data source of relayed event is retained until the encoded packet is released.
+     */
+    public Packet withSharedEncoding(String namespace) {
+        Packet newPacket = copy(namespace);
+        if (dataSource != null) {
+            newPacket.setDataSource(dataSource.retainedDuplicate());
         }
+        newPacket.encodedPacket = new EncodedPacket(newPacket);
+        return newPacket;
+    }
+
+    private Packet copy(String namespace) {
+        Packet newPacket = new Packet(this.type);
+        newPacket.setAckId(this.ackId);
+        newPacket.setData(this.data);
+        newPacket.setDataSource(this.dataSource);
+        newPacket.setName(this.name);
+        newPacket.setSubType(this.subType);
+        newPacket.setNsp(namespace);
+        newPacket.attachments = this.attachments;
+        newPacket.attachmentsCount = this.attachmentsCount;
+        return newPacket;
     }
 
     public void setNsp(String endpoint) {
@@ -156,6 +178,25 @@ public class Packet implements Serializable {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Releases data source and attachment buffers of decoded packet.
+     * Attachments passed to listeners are valid until this method invocation.
+     */
+    public void releaseAttachments() {
+        if (dataSource != null) {
+            dataSource.release();
+            dataSource = null;
+        }
+        for (ByteBuf attachment : attachments) {
+            attachment.release();
+        }
+        attachments.clear();
+    }
+
+    public EncodedPacket getEncodedPacket() {
+        return encodedPacket;
+    }
+
     @Override
     public String toString() {
         return "Packet [type=" + type + ", ackId=" + ackId + "]";
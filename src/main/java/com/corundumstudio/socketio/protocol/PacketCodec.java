@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.ack.AckManager;
+
+/**
+ * Binary codec of socket.io packets negotiated per connection.
+ *
+ * Client selects codec by name with {@link #CODEC_PARAM} handshake parameter.
+ * Whole socket.io packet <code>{type, nsp, id, data}</code> is encoded by codec
+ * and sent as binary engine.io message, so binary data doesn't need attachments.
+ * Engine.io packets (open, ping, pong etc.) stay unchanged.
+ *
+ */
+public interface PacketCodec {
+
+    String CODEC_PARAM = "codec";
+
+    /**
+     * @return codec name requested by client
+     */
+    String getName();
+
+    /**
+     * Encodes socket.io packet
+     *
+     * @param packet - packet of {@link PacketType#MESSAGE} type
+     * @param out - output
+     * @throws IOException - in case of serialization error
+     */
+    void encode(Packet packet, ByteBufOutputStream out) throws IOException;
+
+    /**
+     * Decodes socket.io packet
+     *
+     * @param in - input
+     * @param sessionId - client session id, used to resolve ack callback
+     * @param ackManager - ack manager
+     * @return packet of {@link PacketType#MESSAGE} type
+     * @throws IOException - in case of parsing error
+     */
+    Packet decode(ByteBufInputStream in, UUID sessionId, AckManager ackManager) throws IOException;
+
+    void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass);
+
+    void removeEventMapping(String namespaceName, String eventName);
+
+}
@@ -18,6 +18,8 @@ package com.corundumstudio.socketio.protocol;
 import com.corundumstudio.socketio.AckCallback;
 import com.corundumstudio.socketio.ack.AckManager;
 import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.Unpooled;
@@ -25,59 +27,132 @@ import io.netty.handler.codec.base64.Base64;
 import io.netty.util.CharsetUtil;
 
 import java.io.IOException;
-import java.net.URLDecoder;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 
 public class PacketDecoder {
 
     private final UTF8CharsScanner utf8scanner = new UTF8CharsScanner();
 
-    private final ByteBuf QUOTES = Unpooled.copiedBuffer("\"", CharsetUtil.UTF_8);
-
     private final JsonSupport jsonSupport;
+    // null if json support doesn't implement extension
+    private final ExtendedJsonSupport extendedJsonSupport;
     private final AckManager ackManager;
+    private final NamespacesHub namespacesHub;
+    private final boolean lazyEventArgs;
 
     public PacketDecoder(JsonSupport jsonSupport, AckManager ackManager) {
+        this(jsonSupport, ackManager, null);
+    }
+
+    /**
+     * @param jsonSupport - json support
+     * @param ackManager - ack manager
+     * @param namespacesHub - used to resolve namespace names without String creation
+     */
+    public PacketDecoder(JsonSupport jsonSupport, AckManager ackManager, NamespacesHub namespacesHub) {
+        this(jsonSupport, ackManager, namespacesHub, false);
+    }
+
+    /**
+     * @param jsonSupport - json support
+     * @param ackManager - ack manager
+     * @param namespacesHub - used to resolve namespace names without String creation
+     * @param lazyEventArgs - bind event arguments on first access
+     */
+    public PacketDecoder(JsonSupport jsonSupport, AckManager ackManager, NamespacesHub namespacesHub, boolean lazyEventArgs) {
         this.jsonSupport = jsonSupport;
+        if (jsonSupport instanceof ExtendedJsonSupport) {
+            this.extendedJsonSupport = (ExtendedJsonSupport) jsonSupport;
+        } else {
+            this.extendedJsonSupport = null;
+        }
         this.ackManager = ackManager;
+        this.namespacesHub = namespacesHub;
+        this.lazyEventArgs = lazyEventArgs;
     }
 
     private boolean isStringPacket(ByteBuf content) {
         return content.getByte(content.readerIndex()) == 0x0;
     }
 
-    // TODO optimize
+    /**
+     * URL-decodes b64/jsonp polling body in place in a single pass.
+     * Returned buffer is a slice of <code>content</code>.
+     *
+     * @param jsonIndex - jsonp index or <code>null</code>
+     * @param content - urlencoded body
+     * @return decoded packets
+     * @throws IOException - in case of decoding error
+     */
     public ByteBuf preprocessJson(Integer jsonIndex, ByteBuf content) throws IOException {
-        String packet = URLDecoder.decode(content.toString(CharsetUtil.UTF_8), CharsetUtil.UTF_8.name());
+        int startIndex = content.readerIndex();
+        int endIndex = content.writerIndex();
+        // decoded data is never longer than source data, so it's written over the source
+        int outIndex = startIndex;
+        for (int i = startIndex; i < endIndex; i++) {
+            int b = content.getByte(i);
+            if (b == '+') {
+                b = ' ';
+            } else if (b == '%') {
+                if (i + 2 >= endIndex) {
+                    throw new IllegalArgumentException("Incomplete escape sequence at: " + (i - startIndex));
+                }
+                int hi = hexDigit(content.getByte(i + 1));
+                int lo = hexDigit(content.getByte(i + 2));
+                if (hi == -1 || lo == -1) {
+                    throw new IllegalArgumentException("Illegal hex characters in escape sequence at: " + (i - startIndex));
+                }
+                b = (hi << 4) | lo;
+                i += 2;
+            }
 
-        if (jsonIndex != null) {
             /**
             * double escaping is required for escaped new lines because unescaping of new lines can be done safely on server-side
             * (c) socket.io.js
             *
             * @see https://github.com/Automattic/socket.io-client/blob/1.3.3/socket.io.js#L2682
             */
-            packet = packet.replace("\\\\n", "\\n");
+            if (jsonIndex != null && b == 'n'
+                    && outIndex - startIndex >= 2
+                    && content.getByte(outIndex - 1) == '\\'
+                    && content.getByte(outIndex - 2) == '\\') {
+                outIndex--;
+            }
 
+            content.setByte(outIndex++, b);
+        }
+
+        if (jsonIndex != null) {
             // skip "d="
-            packet = packet.substring(2);
+            startIndex = Math.min(startIndex + 2, outIndex);
         }
 
-        return Unpooled.wrappedBuffer(packet.getBytes(CharsetUtil.UTF_8));
+        return content.slice(startIndex, outIndex - startIndex);
+    }
+
+    private int hexDigit(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
     }
 
     // fastest way to parse chars to int
     private long readLong(ByteBuf chars, int length) {
         long result = 0;
-        for (int i = chars.readerIndex(); i < chars.readerIndex() + length; i++) {
-            int digit = ((int)chars.getByte(i) & 0xF);
-            for (int j = 0; j < chars.readerIndex() + length-1-i; j++) {
-                digit *= 10;
-            }
-            result += digit;
+        int endIndex = chars.readerIndex() + length;
+        for (int i = chars.readerIndex(); i < endIndex; i++) {
+            // works both for text and binary payload digits
+            result = result * 10 + (chars.getByte(i) & 0xF);
         }
-        chars.readerIndex(chars.readerIndex() + length);
+        chars.readerIndex(endIndex);
         return result;
     }
 
@@ -153,6 +228,10 @@ public class PacketDecoder {
     }
 
     private Packet decode(ClientHead head, ByteBuf frame) throws IOException {
+        if (head != null && head.getPacketCodec() != null
+                && isBinaryMessage(frame)) {
+            return decodeWithCodec(head, frame);
+        }
         if ((frame.getByte(0) == 'b' && frame.getByte(1) == '4')
                 || frame.getByte(0) == 4 || frame.getByte(0) == 1) {
             return parseBinary(head, frame);
@@ -177,7 +256,47 @@ public class PacketDecoder {
         return packet;
     }
 
-    private void parseHeader(ByteBuf frame, Packet packet, PacketType innerType) {
+    private boolean isBinaryMessage(ByteBuf frame) {
+        int index = frame.readerIndex();
+        byte type = frame.getByte(index);
+        return type == 4 || type == 1
+                || (type == 'b' && frame.readableBytes() > 1 && frame.getByte(index + 1) == '4');
+    }
+
+    /**
+     * Decodes socket.io packet sent as binary engine.io message
+     * by codec negotiated during handshake
+     */
+    private Packet decodeWithCodec(ClientHead head, ByteBuf frame) throws IOException {
+        if (frame.getByte(frame.readerIndex()) == 1) {
+            frame.readByte();
+            int headEndIndex = frame.bytesBefore((byte)-1);
+            int len = (int) readLong(frame, headEndIndex);
+            ByteBuf oldFrame = frame;
+            frame = frame.slice(oldFrame.readerIndex() + 1, len);
+            oldFrame.readerIndex(oldFrame.readerIndex() + 1 + len);
+        }
+
+        PacketCodec codec = head.getPacketCodec();
+        int index = frame.readerIndex();
+        if (frame.getByte(index) == 'b' && frame.getByte(index + 1) == '4') {
+            ByteBuf decoded = Base64.decode(frame, index + 2, frame.readableBytes() - 2);
+            frame.skipBytes(frame.readableBytes());
+            try {
+                return codec.decode(new ByteBufInputStream(decoded), head.getSessionId(), ackManager);
+            } finally {
+                decoded.release();
+            }
+        }
+
+        // skip message type
+        frame.skipBytes(1);
+        ByteBuf src = frame.slice();
+        frame.skipBytes(frame.readableBytes());
+        return codec.decode(new ByteBufInputStream(src), head.getSessionId(), ackManager);
+    }
+
+    void parseHeader(ByteBuf frame, Packet packet, PacketType innerType) {
         int endIndex = frame.bytesBefore((byte)'[');
         if (endIndex <= 0) {
             return;
@@ -197,16 +316,14 @@ public class PacketDecoder {
             return;
         }
 
-        // TODO optimize
-        boolean hasNsp = frame.bytesBefore(endIndex, (byte)',') != -1;
-        if (hasNsp) {
-            String nspAckId = readString(frame, endIndex);
-            String[] parts = nspAckId.split(",");
-            String nsp = parts[0];
-            packet.setNsp(nsp);
-            if (parts.length > 1) {
-                String ackId = parts[1];
-                packet.setAckId(Long.valueOf(ackId));
+        int nspEndIndex = frame.bytesBefore(endIndex, (byte)',');
+        if (nspEndIndex != -1) {
+            packet.setNsp(readNamespace(frame, nspEndIndex));
+            // skip ','
+            frame.skipBytes(1);
+            int ackIdLength = endIndex - nspEndIndex - 1;
+            if (ackIdLength > 0) {
+                packet.setAckId(readLong(frame, ackIdLength));
             }
         } else {
             long ackId = readLong(frame, endIndex);
@@ -233,42 +350,28 @@ public class PacketDecoder {
         Packet binaryPacket = head.getLastBinaryPacket();
         if (binaryPacket != null) {
             if (frame.getByte(0) == 'b' && frame.getByte(1) == '4') {
-                binaryPacket.addAttachment(Unpooled.copiedBuffer(frame));
+                // base64 attachment of polling payload is decoded only once
+                binaryPacket.addAttachment(Base64.decode(frame));
             } else {
-                ByteBuf attachBuf = Base64.encode(frame);
-                binaryPacket.addAttachment(Unpooled.copiedBuffer(attachBuf));
-                attachBuf.release();
+                binaryPacket.addAttachment(frame.retainedSlice());
             }
-            frame.readerIndex(frame.readerIndex() + frame.readableBytes());
+            frame.skipBytes(frame.readableBytes());
 
             if (binaryPacket.isAttachmentsLoaded()) {
-                LinkedList<ByteBuf> slices = new LinkedList<ByteBuf>();
+                head.setLastBinaryPacket(null);
                 ByteBuf source = binaryPacket.getDataSource();
-                for (int i = 0; i < binaryPacket.getAttachments().size(); i++) {
-                    ByteBuf attachment = binaryPacket.getAttachments().get(i);
-                    ByteBuf scanValue = Unpooled.copiedBuffer("{\"_placeholder\":true,\"num\":" + i + "}", CharsetUtil.UTF_8);
-                    int pos = PacketEncoder.find(source, scanValue);
-                    if (pos == -1) {
-                        scanValue = Unpooled.copiedBuffer("{\"num\":" + i + ",\"_placeholder\":true}", CharsetUtil.UTF_8);
-                        pos = PacketEncoder.find(source, scanValue);
-                        if (pos == -1) {
-                            throw new IllegalStateException("Can't find attachment by index: " + i + " in packet source");
-                        }
+                binaryPacket.setDataSource(null);
+                boolean parsed = false;
+                try {
+                    // placeholders are resolved to attachments during json parsing
+                    parseBody(head, source, binaryPacket);
+                    parsed = true;
+                } finally {
+                    source.release();
+                    if (!parsed) {
+                        binaryPacket.releaseAttachments();
                     }
-
-                    ByteBuf prefixBuf = source.slice(source.readerIndex(), pos - source.readerIndex());
-                    slices.add(prefixBuf);
-                    slices.add(QUOTES);
-                    slices.add(attachment);
-                    slices.add(QUOTES);
-
-                    source.readerIndex(pos + scanValue.readableBytes());
                 }
-                slices.add(source.slice());
-
-                ByteBuf compositeBuf = Unpooled.wrappedBuffer(slices.toArray(new ByteBuf[slices.size()]));
-                parseBody(head, compositeBuf, binaryPacket);
-                head.setLastBinaryPacket(null);
                 return binaryPacket;
             }
         }
@@ -283,8 +386,12 @@ public class PacketDecoder {
             }
 
             if (packet.hasAttachments() && !packet.isAttachmentsLoaded()) {
-                packet.setDataSource(Unpooled.copiedBuffer(frame));
-                frame.readerIndex(frame.readableBytes());
+                Packet lastPacket = head.getLastBinaryPacket();
+                if (lastPacket != null) {
+                    lastPacket.releaseAttachments();
+                }
+                packet.setDataSource(frame.retainedSlice());
+                frame.skipBytes(frame.readableBytes());
                 head.setLastBinaryPacket(packet);
             }
 
@@ -294,22 +401,184 @@ public class PacketDecoder {
 
             if (packet.getSubType() == PacketType.ACK
                     || packet.getSubType() == PacketType.BINARY_ACK) {
-                ByteBufInputStream in = new ByteBufInputStream(frame);
                 AckCallback<?> callback = ackManager.getCallback(head.getSessionId(), packet.getAckId());
-                AckArgs args = jsonSupport.readAckArgs(in, callback);
+                AckArgs args;
+                if (extendedJsonSupport != null) {
+                    ByteBufInputStream in = new ByteBufInputStream(frame);
+                    args = extendedJsonSupport.readAckArgs(in, callback, packet.getAttachments());
+                } else {
+                    ByteBufInputStream in = new ByteBufInputStream(inlineAttachments(frame, packet));
+                    args = jsonSupport.readAckArgs(in, callback);
+                }
                 packet.setData(args.getArgs());
             }
 
+            if ((packet.getSubType() == PacketType.EVENT
+                    || packet.getSubType() == PacketType.BINARY_EVENT)
+                        && readEvent(frame, packet)) {
+                return;
+            }
+
             if (packet.getSubType() == PacketType.EVENT
                     || packet.getSubType() == PacketType.BINARY_EVENT) {
-                ByteBufInputStream in = new ByteBufInputStream(frame);
-                Event event = jsonSupport.readValue(packet.getNsp(), in, Event.class);
+                Event event;
+                if (extendedJsonSupport != null) {
+                    ByteBufInputStream in = new ByteBufInputStream(frame);
+                    event = extendedJsonSupport.readValue(packet.getNsp(), in, Event.class, packet.getAttachments());
+                } else {
+                    ByteBufInputStream in = new ByteBufInputStream(inlineAttachments(frame, packet));
+                    event = jsonSupport.readValue(packet.getNsp(), in, Event.class);
+                }
                 packet.setName(event.getName());
                 packet.setData(event.getArgs());
             }
         }
     }
     
+    /**
+     * Replaces attachment placeholders by base64 strings,
+     * so json support without {@link ExtendedJsonSupport}
+     * binds attachments to <code>byte[]</code> values.
+     *
+     * @return frame itself if packet has no attachments
+     */
+    private ByteBuf inlineAttachments(ByteBuf frame, Packet packet) {
+        List<ByteBuf> attachments = packet.getAttachments();
+        if (!packet.hasAttachments() || attachments.isEmpty()) {
+            return frame;
+        }
+
+        String source = frame.toString(CharsetUtil.UTF_8);
+        frame.skipBytes(frame.readableBytes());
+        for (int i = 0; i < attachments.size(); i++) {
+            ByteBuf encoded = Base64.encode(attachments.get(i).duplicate(), false);
+            String value = "\"" + encoded.toString(CharsetUtil.US_ASCII) + "\"";
+            encoded.release();
+
+            String placeholder = "{\"_placeholder\":true,\"num\":" + i + "}";
+            int pos = source.indexOf(placeholder);
+            if (pos == -1) {
+                placeholder = "{\"num\":" + i + ",\"_placeholder\":true}";
+                pos = source.indexOf(placeholder);
+                if (pos == -1) {
+                    throw new IllegalStateException("Can't find attachment by index: " + i + " in packet source");
+                }
+            }
+            source = source.substring(0, pos) + value + source.substring(pos + placeholder.length());
+        }
+        return Unpooled.wrappedBuffer(source.getBytes(CharsetUtil.UTF_8));
+    }
+
+    /**
+     * Reads event without eager arguments binding. Event is
+     * passed to raw listeners, dropped if it has no listeners
+     * or its arguments are bound lazily.
+     *
+     * @return <code>true</code> if event has been read
+     */
+    private boolean readEvent(ByteBuf frame, Packet packet) throws IOException {
+        if (namespacesHub == null) {
+            return false;
+        }
+        Namespace namespace = namespacesHub.get(packet.getNsp());
+        if (namespace == null) {
+            return false;
+        }
+
+        int nameEnd = eventNameEnd(frame);
+        if (nameEnd == -1) {
+            return false;
+        }
+        int nameStart = frame.readerIndex() + 2;
+        String name = frame.toString(nameStart, nameEnd - nameStart, CharsetUtil.UTF_8);
+
+        if (packet.getSubType() == PacketType.EVENT
+                && namespace.isRawEvent(name)
+                    && readRawArgs(frame, packet, nameEnd)) {
+            packet.setName(name);
+            return true;
+        }
+
+        if (!namespace.hasEventListener(name)) {
+            // nobody listens to this event
+            packet.setName(name);
+            frame.skipBytes(frame.readableBytes());
+            return true;
+        }
+
+        if (lazyEventArgs && extendedJsonSupport != null) {
+            ByteBuf source = frame.retainedSlice();
+            frame.skipBytes(frame.readableBytes());
+            boolean read = false;
+            try {
+                Event event = extendedJsonSupport.readLazyEvent(packet.getNsp(), source, packet.getAttachments());
+                packet.setName(event.getName());
+                packet.setData(event.getArgs());
+                // source is released after listener invocation
+                packet.setDataSource(source);
+                read = true;
+            } finally {
+                if (!read) {
+                    source.release();
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return index of event name closing quote in <code>["name",arg0,arg1]</code>
+     *          or <code>-1</code> if name can't be read without json parsing
+     */
+    private int eventNameEnd(ByteBuf frame) {
+        int start = frame.readerIndex();
+        int end = frame.writerIndex();
+        if (end - start < 4
+                || frame.getByte(start) != '['
+                    || frame.getByte(start + 1) != '"') {
+            return -1;
+        }
+        int nameEnd = frame.indexOf(start + 2, end, (byte) '"');
+        // escaped names are left to json support
+        if (nameEnd == -1
+                || frame.indexOf(start + 2, nameEnd, (byte) '\\') != -1) {
+            return -1;
+        }
+        return nameEnd;
+    }
+
+    /**
+     * Keeps event arguments as retained slice in packet data source
+     */
+    private boolean readRawArgs(ByteBuf frame, Packet packet, int nameEnd) {
+        int end = frame.writerIndex();
+        int argsStart = nameEnd + 1;
+        while (argsStart < end && isWhitespace(frame.getByte(argsStart))) {
+            argsStart++;
+        }
+        int argsEnd = end - 1;
+        while (argsEnd > argsStart && isWhitespace(frame.getByte(argsEnd))) {
+            argsEnd--;
+        }
+        if (argsStart >= end || frame.getByte(argsEnd) != ']') {
+            return false;
+        }
+        if (frame.getByte(argsStart) == ',') {
+            argsStart++;
+        } else if (argsStart != argsEnd) {
+            return false;
+        }
+
+        packet.setDataSource(frame.retainedSlice(argsStart, argsEnd - argsStart));
+        frame.readerIndex(end);
+        return true;
+    }
+
+    private boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
     private String readNamespace(ByteBuf frame){
         /**
          * namespace post request with url queryString, like
@@ -318,13 +587,32 @@ public class PacketDecoder {
          */
         int endIndex = frame.bytesBefore((byte)'?');
         if(endIndex > 0){
-            return readString(frame,endIndex);
+            return readNamespace(frame, endIndex);
         }
         endIndex = frame.bytesBefore((byte)',');
         if(endIndex > 0){
-            return readString(frame,endIndex);
+            return readNamespace(frame, endIndex);
+        }
+        return readNamespace(frame, frame.readableBytes());
+    }
+
+    /**
+     * Reads namespace name, registered names are resolved without String creation
+     */
+    private String readNamespace(ByteBuf frame, int length) {
+        if (length == 0) {
+            return Namespace.DEFAULT_NAME;
+        }
+
+        String name = null;
+        if (namespacesHub != null) {
+            name = namespacesHub.findName(frame, frame.readerIndex(), length);
+        }
+        if (name == null) {
+            name = frame.toString(frame.readerIndex(), length, CharsetUtil.UTF_8);
         }
-        return readString(frame);
+        frame.skipBytes(length);
+        return name;
     }
 
 }
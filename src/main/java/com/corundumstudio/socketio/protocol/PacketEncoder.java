@@ -25,6 +25,7 @@ import io.netty.util.CharsetUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 
@@ -41,11 +42,21 @@ public class PacketEncoder {
     private static final byte[] JSONP_START = "]('".getBytes(CharsetUtil.UTF_8);
     private static final byte[] JSONP_END = "');".getBytes(CharsetUtil.UTF_8);
 
+    /** amount of digits reserved for backfilled length header */
+    private static final int LENGTH_HEADER_WIDTH = 5;
+
     private final JsonSupport jsonSupport;
+    // null if json support doesn't implement extension
+    private final ExtendedJsonSupport extendedJsonSupport;
     private final Configuration configuration;
 
     public PacketEncoder(Configuration configuration, JsonSupport jsonSupport) {
         this.jsonSupport = jsonSupport;
+        if (jsonSupport instanceof ExtendedJsonSupport) {
+            this.extendedJsonSupport = (ExtendedJsonSupport) jsonSupport;
+        } else {
+            this.extendedJsonSupport = null;
+        }
         this.configuration = configuration;
     }
 
@@ -62,37 +73,71 @@ public class PacketEncoder {
     }
 
     public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator, int limit) throws IOException {
+        encodeJsonP(jsonpIndex, packets, out, allocator, limit, null);
+    }
+
+    /**
+     * @param codec - binary codec negotiated by client, may be <code>null</code>
+     */
+    public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator, int limit,
+            PacketCodec codec) throws IOException {
         boolean jsonpMode = jsonpIndex != null;
 
         ByteBuf buf = allocateBuffer(allocator);
 
-        int i = 0;
-        while (true) {
+        for (int i = 0; i < limit; i++) {
             // 从queue中把数据包取出来
             Packet packet = packets.poll();
-            if (packet == null || i == limit) {
+            if (packet == null) {
                 break;
             }
 
-            ByteBuf packetBuf = allocateBuffer(allocator);
-            // 执行加密
-            encodePacket(packet, packetBuf, allocator, true);
+            if (isCodecPacket(packet, codec)) {
+                ByteBuf packetBuf = encodeCodecPacket(packet, allocator, codec);
+                // message type byte is replaced by b4 header
+                ByteBuf encodedBuf = Base64.encode(packetBuf, packetBuf.readerIndex() + 1, packetBuf.readableBytes() - 1, false);
+                packetBuf.release();
+                writeDigits(buf, encodedBuf.readableBytes() + 2, '0');
+                buf.writeBytes(B64_DELIMITER);
+                buf.writeBytes(BINARY_HEADER);
+                buf.writeBytes(encodedBuf);
+                encodedBuf.release();
+                continue;
+            }
+
+            EncodedPacket encodedPacket = packet.getEncodedPacket();
+            if (encodedPacket != null) {
+                writeEncodedB64(encodedPacket, buf, allocator);
+                continue;
+            }
 
-            int packetSize = packetBuf.writerIndex();
-            buf.writeBytes(toChars(packetSize));
-            buf.writeBytes(B64_DELIMITER);
-            buf.writeBytes(packetBuf);
+            if (configuration.isBackfillPayloadLength()) {
+                int lengthIndex = reserveLength(buf, B64_DELIMITER[0]);
+                try {
+                    encodePacket(packet, buf, allocator, true);
+                } finally {
+                    backfillLength(buf, lengthIndex, '0');
+                }
+            } else {
+                ByteBuf packetBuf = allocateBuffer(allocator);
+                // 执行加密
+                encodePacket(packet, packetBuf, allocator, true);
 
-            packetBuf.release();
+                int packetSize = packetBuf.writerIndex();
+                writeDigits(buf, packetSize, '0');
+                buf.writeBytes(B64_DELIMITER);
+                buf.writeBytes(packetBuf);
 
-            i++;
+                packetBuf.release();
+            }
 
             for (ByteBuf attachment : packet.getAttachments()) {
                 ByteBuf encodedBuf = Base64.encode(attachment, Base64Dialect.URL_SAFE);
-                buf.writeBytes(toChars(encodedBuf.readableBytes() + 2));
+                writeDigits(buf, encodedBuf.readableBytes() + 2, '0');
                 buf.writeBytes(B64_DELIMITER);
                 buf.writeBytes(BINARY_HEADER);
                 buf.writeBytes(encodedBuf);
+                encodedBuf.release();
             }
         }
 
@@ -126,20 +171,42 @@ public class PacketEncoder {
     }
 
     public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator, int limit) throws IOException {
-        int i = 0;
-        while (true) {
+        encodePackets(packets, buffer, allocator, limit, null);
+    }
+
+    /**
+     * @param codec - binary codec negotiated by client, may be <code>null</code>
+     */
+    public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator, int limit,
+            PacketCodec codec) throws IOException {
+        for (int i = 0; i < limit; i++) {
             Packet packet = packets.poll();
-            if (packet == null || i == limit) {
+            if (packet == null) {
                 break;
             }
-            encodePacket(packet, buffer, allocator, false);
 
-            i++;
+            if (isCodecPacket(packet, codec)) {
+                ByteBuf packetBuf = encodeCodecPacket(packet, allocator, codec);
+                buffer.writeByte(1);
+                writeDigits(buffer, packetBuf.readableBytes(), 0);
+                buffer.writeByte(0xff);
+                buffer.writeBytes(packetBuf);
+                packetBuf.release();
+                continue;
+            }
+
+            EncodedPacket encodedPacket = packet.getEncodedPacket();
+            if (encodedPacket != null) {
+                writeEncodedBinary(encodedPacket, buffer, allocator);
+                continue;
+            }
+
+            encodePacket(packet, buffer, allocator, false);
 
             // 对packet内的数据buffer进行追加
             for (ByteBuf attachment : packet.getAttachments()) {
                 buffer.writeByte(1);
-                buffer.writeBytes(longToBytes(attachment.readableBytes() + 1));
+                writeDigits(buffer, attachment.readableBytes() + 1, 0);
                 buffer.writeByte(0xff);
                 buffer.writeByte(4);
                 buffer.writeBytes(attachment);
@@ -147,6 +214,143 @@ public class PacketEncoder {
         }
     }
 
+    /**
+     * @return <code>true</code> if socket.io packet should be encoded by negotiated codec
+     */
+    public boolean isCodecPacket(Packet packet, PacketCodec codec) {
+        return codec != null && packet.getType() == PacketType.MESSAGE;
+    }
+
+    /**
+     * Encodes packet by codec as binary engine.io message.
+     * Shared encoding isn't used, so reference to shared packet is released.
+     *
+     * @return buffer with message type byte followed by encoded packet
+     */
+    public ByteBuf encodeCodecPacket(Packet packet, ByteBufAllocator allocator, PacketCodec codec) throws IOException {
+        EncodedPacket encodedPacket = packet.getEncodedPacket();
+        ByteBuf buf = allocateBuffer(allocator);
+        boolean encoded = false;
+        try {
+            buf.writeByte(4);
+            codec.encode(packet, new ByteBufOutputStream(buf));
+            encoded = true;
+            return buf;
+        } finally {
+            if (!encoded) {
+                buf.release();
+            }
+            if (encodedPacket != null) {
+                encodedPacket.release();
+            }
+        }
+    }
+
+    /**
+     * Writes shared packet content using polling binary framing
+     */
+    private void writeEncodedBinary(EncodedPacket encodedPacket, ByteBuf buffer, ByteBufAllocator allocator) throws IOException {
+        try {
+            encodedPacket.encode(this, allocator);
+
+            ByteBuf content = encodedPacket.getContent();
+            buffer.writeByte(0);
+            writeDigits(buffer, content.readableBytes(), 0);
+            buffer.writeByte(0xff);
+            buffer.writeBytes(content, content.readerIndex(), content.readableBytes());
+
+            // binary frames already contain message type byte
+            for (ByteBuf frame : encodedPacket.getBinaryFrames()) {
+                buffer.writeByte(1);
+                writeDigits(buffer, frame.readableBytes(), 0);
+                buffer.writeByte(0xff);
+                buffer.writeBytes(frame, frame.readerIndex(), frame.readableBytes());
+            }
+        } finally {
+            encodedPacket.release();
+        }
+    }
+
+    /**
+     * Writes shared packet content using polling b64 framing
+     */
+    private void writeEncodedB64(EncodedPacket encodedPacket, ByteBuf buf, ByteBufAllocator allocator) throws IOException {
+        try {
+            encodedPacket.encode(this, allocator);
+
+            ByteBuf content = encodedPacket.getContent();
+            writeDigits(buf, content.readableBytes(), '0');
+            buf.writeBytes(B64_DELIMITER);
+            buf.writeBytes(content, content.readerIndex(), content.readableBytes());
+
+            for (ByteBuf frame : encodedPacket.getBinaryFrames()) {
+                // skip message type byte, it's replaced by b4 header
+                ByteBuf encodedBuf = Base64.encode(frame, frame.readerIndex() + 1, frame.readableBytes() - 1, Base64Dialect.URL_SAFE);
+                writeDigits(buf, encodedBuf.readableBytes() + 2, '0');
+                buf.writeBytes(B64_DELIMITER);
+                buf.writeBytes(BINARY_HEADER);
+                buf.writeBytes(encodedBuf);
+                encodedBuf.release();
+            }
+        } finally {
+            encodedPacket.release();
+        }
+    }
+
+    /**
+     * Writes decimal digits of number without intermediate array
+     *
+     * @param zero - <code>'0'</code> for text digits, <code>0</code> for binary payload digits
+     */
+    private static void writeDigits(ByteBuf buf, long number, int zero) {
+        int index = buf.writerIndex();
+        int width = stringSize(number);
+        buf.writeZero(width);
+        setDigits(buf, index, width, number, zero);
+    }
+
+    private static void setDigits(ByteBuf buf, int index, int width, long number, int zero) {
+        for (int i = index + width - 1; i >= index; i--) {
+            buf.setByte(i, (int) (number % 10) + zero);
+            number /= 10;
+        }
+    }
+
+    /**
+     * Reserves zero padded length header followed by delimiter.
+     * Packet should be encoded right after it.
+     *
+     * @return index of length header
+     */
+    private int reserveLength(ByteBuf buf, int delimiter) {
+        int index = buf.writerIndex();
+        buf.writeZero(LENGTH_HEADER_WIDTH);
+        buf.writeByte(delimiter);
+        return index;
+    }
+
+    /**
+     * Writes length of data encoded after reserved header into the header.
+     * Header is widened if length doesn't fit into it.
+     */
+    private void backfillLength(ByteBuf buf, int index, int zero) {
+        int dataIndex = index + LENGTH_HEADER_WIDTH + 1;
+        long length = buf.writerIndex() - dataIndex;
+        int width = stringSize(length);
+        if (width > LENGTH_HEADER_WIDTH) {
+            // rare case, data is bigger than reserved header allows
+            int delimiterIndex = index + LENGTH_HEADER_WIDTH;
+            ByteBuf tail = buf.copy(delimiterIndex, buf.writerIndex() - delimiterIndex);
+            buf.writerIndex(delimiterIndex);
+            buf.writeZero(width - LENGTH_HEADER_WIDTH);
+            buf.writeBytes(tail);
+            tail.release();
+        } else {
+            width = LENGTH_HEADER_WIDTH;
+        }
+        setDigits(buf, index, width, length, zero);
+    }
+
     private byte toChar(int number) {
         return (byte) (number ^ 0x30);
     }
@@ -244,6 +448,18 @@ public class PacketEncoder {
      * @throws IOException
      */
     public void encodePacket(Packet packet, ByteBuf buffer, ByteBufAllocator allocator, boolean binary) throws IOException {
+        if (!binary && configuration.isBackfillPayloadLength()) {
+            buffer.writeByte(0);
+            int lengthIndex = reserveLength(buffer, 0xff);
+            try {
+                encodePacket(packet, buffer, allocator, true);
+            } finally {
+                // we need to write a buffer in any case
+                backfillLength(buffer, lengthIndex, 0);
+            }
+            return;
+        }
+
         ByteBuf buf = buffer;
         if (!binary) {
             buf = allocateBuffer(allocator);
@@ -267,71 +483,14 @@ public class PacketEncoder {
                 }
 
                 case MESSAGE: {
-
-                    ByteBuf encBuf = null;
-
-                    if (packet.getSubType() == PacketType.ERROR) {
-                        encBuf = allocateBuffer(allocator);
-
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, packet.getData());
-                    }
-
-                    if (packet.getSubType() == PacketType.EVENT
-                            || packet.getSubType() == PacketType.ACK) {
-
-                        List<Object> values = new ArrayList<Object>();
-                        if (packet.getSubType() == PacketType.EVENT) {
-                            values.add(packet.getName());
-                        }
-
-                        encBuf = allocateBuffer(allocator);
-
-                        List<Object> args = packet.getData();
-                        values.addAll(args);
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, values);
-
-                        if (!jsonSupport.getArrays().isEmpty()) {
-                            packet.initAttachments(jsonSupport.getArrays().size());
-                            for (byte[] array : jsonSupport.getArrays()) {
-                                packet.addAttachment(Unpooled.wrappedBuffer(array));
-                            }
-                            packet.setSubType(packet.getSubType() == PacketType.ACK
-                                    ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
-                        }
+                    int headerIndex = buf.writerIndex();
+                    try {
+                        encodeMessage(packet, buf);
+                    } catch (IOException e) {
+                        // don't leave partially written message
+                        buf.writerIndex(headerIndex);
+                        throw e;
                     }
-
-                    byte subType = toChar(packet.getSubType().getValue());
-                    buf.writeByte(subType);
-
-                    if (packet.hasAttachments()) {
-                        byte[] ackId = toChars(packet.getAttachments().size());
-                        buf.writeBytes(ackId);
-                        buf.writeByte('-');
-                    }
-
-                    if (packet.getSubType() == PacketType.CONNECT) {
-                        if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
-                        }
-                    } else {
-                        if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
-                            buf.writeByte(',');
-                        }
-                    }
-
-                    if (packet.getAckId() != null) {
-                        byte[] ackId = toChars(packet.getAckId());
-                        buf.writeBytes(ackId);
-                    }
-
-                    if (encBuf != null) {
-                        buf.writeBytes(encBuf);
-                        encBuf.release();
-                    }
-
                     break;
                 }
                 default:
@@ -342,7 +501,7 @@ public class PacketEncoder {
             if (!binary) {
                 buffer.writeByte(0);
                 int length = buf.writerIndex();
-                buffer.writeBytes(longToBytes(length));
+                writeDigits(buffer, length, 0);
                 buffer.writeByte(0xff);
                 buffer.writeBytes(buf);
 
@@ -351,6 +510,115 @@ public class PacketEncoder {
         }
     }
 
+    /**
+     * Writes message header and payload.
+     * Event and ack arguments are serialized straight into the buffer.
+     */
+    private void encodeMessage(Packet packet, ByteBuf buf) throws IOException {
+        int subTypeIndex = buf.writerIndex();
+        byte subType = toChar(packet.getSubType().getValue());
+        buf.writeByte(subType);
+
+        int attachmentsIndex = buf.writerIndex();
+        boolean attachmentsWritten = packet.hasAttachments();
+        if (attachmentsWritten) {
+            writeDigits(buf, packet.getAttachments().size(), '0');
+            buf.writeByte('-');
+        }
+
+        if (packet.getSubType() == PacketType.CONNECT) {
+            if (!packet.getNsp().isEmpty()) {
+                buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
+            }
+        } else {
+            if (!packet.getNsp().isEmpty()) {
+                buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
+                buf.writeByte(',');
+            }
+        }
+
+        if (packet.getAckId() != null) {
+            writeDigits(buf, packet.getAckId(), '0');
+        }
+
+        if (packet.getSubType() == PacketType.ERROR) {
+            ByteBufOutputStream out = new ByteBufOutputStream(buf);
+            jsonSupport.writeValue(out, packet.getData());
+        }
+
+        if (packet.getSubType() == PacketType.EVENT
+                || packet.getSubType() == PacketType.ACK) {
+
+            String name = null;
+            if (packet.getSubType() == PacketType.EVENT) {
+                name = packet.getName();
+            }
+
+            ByteBufOutputStream out = new ByteBufOutputStream(buf);
+            if (packet.getSubType() == PacketType.EVENT
+                    && packet.getDataSource() != null) {
+                writeRawEvent(out, name, packet.getDataSource());
+                return;
+            }
+
+            List<Object> args = packet.getData();
+            writeEvent(out, name, args);
+
+            if (!jsonSupport.getArrays().isEmpty()) {
+                packet.initAttachments(jsonSupport.getArrays().size());
+                for (byte[] array : jsonSupport.getArrays()) {
+                    packet.addAttachment(Unpooled.wrappedBuffer(array));
+                }
+                packet.setSubType(packet.getSubType() == PacketType.ACK
+                        ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
+
+                // header has been written before attachments were found
+                buf.setByte(subTypeIndex, toChar(packet.getSubType().getValue()));
+                if (!attachmentsWritten) {
+                    insertAttachmentsCount(buf, attachmentsIndex, packet.getAttachments().size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes relayed event with raw json arguments
+     */
+    private void writeRawEvent(ByteBufOutputStream out, String name, ByteBuf rawArgs) throws IOException {
+        ByteBuf buf = out.buffer();
+        writeEvent(out, name, Collections.emptyList());
+        // reopen envelope closed by ']'
+        buf.writerIndex(buf.writerIndex() - 1);
+        if (rawArgs.isReadable()) {
+            buf.writeByte(',');
+            buf.writeBytes(rawArgs, rawArgs.readerIndex(), rawArgs.readableBytes());
+        }
+        buf.writeByte(']');
+    }
+
+    private void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        if (extendedJsonSupport != null) {
+            extendedJsonSupport.writeEvent(out, name, args);
+            return;
+        }
+
+        List<Object> values = new ArrayList<Object>(args.size() + 1);
+        if (name != null) {
+            values.add(name);
+        }
+        values.addAll(args);
+        jsonSupport.writeValue(out, values);
+    }
+
+    private void insertAttachmentsCount(ByteBuf buf, int index, int count) {
+        ByteBuf tail = buf.copy(index, buf.writerIndex() - index);
+        buf.writerIndex(index);
+        writeDigits(buf, count, '0');
+        buf.writeByte('-');
+        buf.writeBytes(tail);
+        tail.release();
+    }
+
     /**
      * 在buffer中寻找是否包含searchValue这些字节，如果有则返回开始位置，否则返回-1
      * @param buffer
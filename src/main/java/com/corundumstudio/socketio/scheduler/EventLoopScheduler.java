@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.scheduler;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler which keeps tasks in timer queue of Netty event loop
+ * instead of single global timer thread.
+ *
+ * Task is run by executor of its {@link SchedulerKey#getExecutor()},
+ * i.e. by event loop of the channel which owns the key.
+ * Tasks without executor are run by event loop of last
+ * {@link #update(ChannelHandlerContext)} context.
+ */
+public class EventLoopScheduler implements CancelableScheduler {
+
+    private final ConcurrentMap<SchedulerKey, ScheduledFuture<?>> scheduledFutures = PlatformDependent.newConcurrentHashMap();
+
+    private volatile ChannelHandlerContext ctx;
+
+    @Override
+    public void update(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    private EventExecutor executor(SchedulerKey key) {
+        if (key != null && key.getExecutor() != null) {
+            return key.getExecutor();
+        }
+        ChannelHandlerContext context = ctx;
+        if (context == null) {
+            throw new IllegalStateException("No event loop to schedule task on");
+        }
+        return context.executor();
+    }
+
+    @Override
+    public void cancel(SchedulerKey key) {
+        ScheduledFuture<?> future = scheduledFutures.remove(key);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    @Override
+    public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+        executor(null).schedule(runnable, delay, unit);
+    }
+
+    @Override
+    public void scheduleCallback(SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        schedule(key, runnable, delay, unit);
+    }
+
+    @Override
+    public void schedule(final SchedulerKey key, final Runnable runnable, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = executor(key).schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    scheduledFutures.remove(key);
+                }
+            }
+        }, delay, unit);
+
+        replaceScheduledFuture(key, future);
+    }
+
+    @Override
+    public void shutdown() {
+        // tasks are cancelled along with event loops
+        for (ScheduledFuture<?> future : scheduledFutures.values()) {
+            future.cancel(false);
+        }
+        scheduledFutures.clear();
+    }
+
+    private void replaceScheduledFuture(SchedulerKey key, ScheduledFuture<?> newFuture) {
+        ScheduledFuture<?> oldFuture;
+        if (newFuture.isDone()) {
+            // no need to keep already completed task
+            oldFuture = scheduledFutures.remove(key);
+        } else {
+            oldFuture = scheduledFutures.put(key, newFuture);
+        }
+
+        // if there was old task, cancel it
+        if (oldFuture != null && oldFuture != newFuture) {
+            oldFuture.cancel(false);
+        }
+    }
+
+}
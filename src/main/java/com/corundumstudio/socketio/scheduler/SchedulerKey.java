@@ -15,6 +15,8 @@
  */
 package com.corundumstudio.socketio.scheduler;
 
+import io.netty.util.concurrent.EventExecutor;
+
 /**
  * 程序调度key基础类
  */
@@ -24,10 +26,27 @@ public class SchedulerKey {
 
     private final Type type;
     private final Object sessionId;
+    // isn't part of key identity
+    private final EventExecutor executor;
 
     public SchedulerKey(Type type, Object sessionId) {
+        this(type, sessionId, null);
+    }
+
+    /**
+     * @param type - type
+     * @param sessionId - session id or channel
+     * @param executor - event loop of channel which owns the key,
+     *          used by {@link EventLoopScheduler} to run the task, may be <code>null</code>
+     */
+    public SchedulerKey(Type type, Object sessionId, EventExecutor executor) {
         this.type = type;
         this.sessionId = sessionId;
+        this.executor = executor;
+    }
+
+    public EventExecutor getExecutor() {
+        return executor;
     }
 
     @Override
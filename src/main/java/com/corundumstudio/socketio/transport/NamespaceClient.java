@@ -19,7 +19,7 @@ import java.net.SocketAddress;
 import java.util.Arrays;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,11 +28,18 @@ import com.corundumstudio.socketio.AckCallback;
 import com.corundumstudio.socketio.HandshakeData;
 import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.ack.PromiseAckCallback;
 import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketType;
 
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+
 /**
  * #{@link SocketIOClient} 接口实现，主要保存namespace
  */
@@ -40,7 +47,7 @@ public class NamespaceClient implements SocketIOClient {
 
     private static final Logger log = LoggerFactory.getLogger(NamespaceClient.class);
 
-    private final AtomicBoolean disconnected = new AtomicBoolean();
+    private volatile boolean disconnected;
     private final ClientHead baseClient;
     private final Namespace namespace;
 
@@ -87,8 +94,20 @@ public class NamespaceClient implements SocketIOClient {
         send(packet, ackCallback);
     }
 
+    @Override
+    public <T> Future<T> sendEventAsync(String name, Class<T> resultClass, long timeout, TimeUnit unit, Object ... data) {
+        EventExecutor executor = baseClient.getEventLoop();
+        if (executor == null) {
+            executor = ImmediateEventExecutor.INSTANCE;
+        }
+        Promise<T> promise = executor.newPromise();
+        sendEvent(name, new PromiseAckCallback<T>(resultClass, unit.toMillis(timeout), promise,
+                executor, baseClient.getAckManager().getCompletions()), data);
+        return promise;
+    }
+
     private boolean isConnected() {
-        return !disconnected.get() && baseClient.isConnected();
+        return !disconnected && baseClient.isConnected();
     }
 
     @Override
@@ -111,8 +130,29 @@ public class NamespaceClient implements SocketIOClient {
         baseClient.send(packet.withNsp(namespace.getName()));
     }
 
+    /**
+     * Adds packet to the client queue without writing it to the channel.
+     *
+     * @param packet - packet to send
+     * @param transport - transport to use
+     * @return channel which the queue should be written to,
+     *          or <code>null</code> if packets will be sent later
+     */
+    public Channel enqueue(Packet packet, Transport transport) {
+        if (!isConnected()) {
+            return null;
+        }
+
+        return baseClient.enqueue(packet.withNsp(namespace.getName()), transport);
+    }
+
+    @Override
+    public int getQueuedPacketsCount() {
+        return baseClient.getQueuedPacketsCount();
+    }
+
     public void onDisconnect() {
-        disconnected.set(true);
+        disconnected = true;
 
         baseClient.removeNamespaceClient(this);
         namespace.onDisconnect(this);
@@ -36,7 +36,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.UUID;
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -93,12 +92,17 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
 
                 try {
                     if (sid != null && sid.get(0) != null) {
-                        final UUID sessionId = UUID.fromString(sid.get(0));
-                        handleMessage(req, sessionId, queryDecoder, ctx);
+                        ClientHead client = clientsBox.get(sid.get(0));
+                        if (client == null) {
+                            log.error("{} is not registered. Closing connection", sid.get(0));
+                            sendError(ctx);
+                            return;
+                        }
+                        handleMessage(req, client, queryDecoder, ctx);
                     } else {
                         // first connection
                         ClientHead client = ctx.channel().attr(ClientHead.CLIENT).get();
-                        handleMessage(req, client.getSessionId(), queryDecoder, ctx);
+                        handleMessage(req, client, queryDecoder, ctx);
                     }
                 } finally {
                     req.release();
@@ -109,48 +113,32 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
         ctx.fireChannelRead(msg);
     }
 
-    private void handleMessage(FullHttpRequest req, UUID sessionId, QueryStringDecoder queryDecoder, ChannelHandlerContext ctx)
+    private void handleMessage(FullHttpRequest req, ClientHead client, QueryStringDecoder queryDecoder, ChannelHandlerContext ctx)
                                                                                 throws IOException {
             String origin = req.headers().get(HttpHeaderNames.ORIGIN);
             if (queryDecoder.parameters().containsKey("disconnect")) {
-                ClientHead client = clientsBox.get(sessionId);
                 client.onChannelDisconnect();
-                ctx.channel().writeAndFlush(new XHRPostMessage(origin, sessionId));
+                ctx.channel().writeAndFlush(new XHRPostMessage(origin, client.getSessionId()));
             } else if (HttpMethod.POST.equals(req.method())) {
-                onPost(sessionId, ctx, origin, req.content());
+                onPost(client, ctx, origin, req.content());
             } else if (HttpMethod.GET.equals(req.method())) {
-                onGet(sessionId, ctx, origin);
+                onGet(client, ctx, origin);
             } else if (HttpMethod.OPTIONS.equals(req.method())) {
-                onOptions(sessionId, ctx, origin);
+                onOptions(client, ctx, origin);
             } else {
-                log.error("Wrong {} method invocation for {}", req.method(), sessionId);
+                log.error("Wrong {} method invocation for {}", req.method(), client.getSessionId());
                 sendError(ctx);
             }
     }
 
-    private void onOptions(UUID sessionId, ChannelHandlerContext ctx, String origin) {
-        ClientHead client = clientsBox.get(sessionId);
-        if (client == null) {
-            log.error("{} is not registered. Closing connection", sessionId);
-            sendError(ctx);
-            return;
-        }
-
-        ctx.channel().writeAndFlush(new XHROptionsMessage(origin, sessionId));
+    private void onOptions(ClientHead client, ChannelHandlerContext ctx, String origin) {
+        ctx.channel().writeAndFlush(new XHROptionsMessage(origin, client.getSessionId()));
     }
 
-    private void onPost(UUID sessionId, ChannelHandlerContext ctx, String origin, ByteBuf content)
+    private void onPost(ClientHead client, ChannelHandlerContext ctx, String origin, ByteBuf content)
                                                                                 throws IOException {
-        ClientHead client = clientsBox.get(sessionId);
-        if (client == null) {
-            log.error("{} is not registered. Closing connection", sessionId);
-            sendError(ctx);
-            return;
-        }
-
-
         // release POST response before message processing
-        ctx.channel().writeAndFlush(new XHRPostMessage(origin, sessionId));
+        ctx.channel().writeAndFlush(new XHRPostMessage(origin, client.getSessionId()));
 
         Boolean b64 = ctx.channel().attr(EncoderHandler.B64).get();
         if (b64 != null && b64) {
@@ -161,14 +149,7 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
         ctx.pipeline().fireChannelRead(new PacketsMessage(client, content, Transport.POLLING));
     }
 
-    protected void onGet(UUID sessionId, ChannelHandlerContext ctx, String origin) {
-        ClientHead client = clientsBox.get(sessionId);
-        if (client == null) {
-            log.error("{} is not registered. Closing connection", sessionId);
-            sendError(ctx);
-            return;
-        }
-
+    protected void onGet(ClientHead client, ChannelHandlerContext ctx, String origin) {
         client.bindChannel(ctx.channel(), Transport.POLLING);
 
         authorizeHandler.connect(client);
@@ -182,7 +163,7 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         final Channel channel = ctx.channel();
-        ClientHead client = clientsBox.get(channel);
+        ClientHead client = channel.attr(ClientHead.BOUND_CLIENT).get();
         if (client != null && client.isTransportChannel(ctx.channel(), Transport.POLLING)) {
             log.debug("channel inactive {}", client.getSessionId());
             client.releasePollingChannel(channel);
@@ -86,7 +86,7 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
           ctx.channel().writeAndFlush(msg).addListener(ChannelFutureListener.CLOSE);
         } else if (msg instanceof BinaryWebSocketFrame || msg instanceof TextWebSocketFrame) {
             ByteBufHolder frame = (ByteBufHolder) msg;
-            ClientHead client = clientsBox.get(ctx.channel());
+            ClientHead client = ctx.channel().attr(ClientHead.BOUND_CLIENT).get();
             if (client == null) {
                 log.debug("Client with was already disconnected. Channel closed!");
                 ctx.channel().close();
@@ -111,12 +111,18 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
                         return;
                     }
                     if (sid != null && sid.get(0) != null) {
-                        final UUID sessionId = UUID.fromString(sid.get(0));
-                        handshake(ctx, sessionId, path, req);
+                        ClientHead client = clientsBox.get(sid.get(0));
+                        if (client == null) {
+                            log.warn("Unauthorized client with sessionId: {} with ip: {}. Channel closed!",
+                                        sid.get(0), ctx.channel().remoteAddress());
+                            ctx.channel().close();
+                            return;
+                        }
+                        handshake(ctx, client, path, req);
                     } else {
                         ClientHead client = ctx.channel().attr(ClientHead.CLIENT).get();
                         // first connection
-                        handshake(ctx, client.getSessionId(), path, req);
+                        handshake(ctx, client, path, req);
                     }
                 } finally {
                     req.release();
@@ -131,7 +137,7 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-        ClientHead client = clientsBox.get(ctx.channel());
+        ClientHead client = ctx.channel().attr(ClientHead.BOUND_CLIENT).get();
         if (client != null && client.isTransportChannel(ctx.channel(), Transport.WEBSOCKET)) {
             ctx.flush();
         } else {
@@ -139,10 +145,22 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            ClientHead client = ctx.channel().attr(ClientHead.BOUND_CLIENT).get();
+            if (client != null && client.isTransportChannel(ctx.channel(), Transport.WEBSOCKET)) {
+                // resume sending of queued packets
+                client.sendPackets(Transport.WEBSOCKET);
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         final  Channel channel = ctx.channel();
-        ClientHead client = clientsBox.get(channel);
+        ClientHead client = channel.attr(ClientHead.BOUND_CLIENT).get();
         Packet packet = new Packet(PacketType.MESSAGE);
         packet.setSubType(PacketType.DISCONNECT);
         if (client != null && client.isTransportChannel(ctx.channel(), Transport.WEBSOCKET)) {
@@ -157,7 +175,7 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
         ctx.close();
     }
 
-    private void handshake(ChannelHandlerContext ctx, final UUID sessionId, String path, FullHttpRequest req) {
+    private void handshake(ChannelHandlerContext ctx, final ClientHead client, String path, FullHttpRequest req) {
         final Channel channel = ctx.channel();
 
         WebSocketServerHandshakerFactory factory =
@@ -169,13 +187,13 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
                     if (!future.isSuccess()) {
-                        log.error("Can't handshake " + sessionId, future.cause());
+                        log.error("Can't handshake " + client.getSessionId(), future.cause());
                         return;
                     }
 
                     channel.pipeline().addBefore(SocketIOChannelInitializer.WEB_SOCKET_TRANSPORT, SocketIOChannelInitializer.WEB_SOCKET_AGGREGATOR,
                             new WebSocketFrameAggregator(configuration.getMaxFramePayloadLength()));
-                    connectClient(channel, sessionId);
+                    connectClient(channel, client);
                 }
             });
         } else {
@@ -183,10 +201,10 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
         }
     }
 
-    private void connectClient(final Channel channel, final UUID sessionId) {
-        ClientHead client = clientsBox.get(sessionId);
-        if (client == null) {
-            log.warn("Unauthorized client with sessionId: {} with ip: {}. Channel closed!",
+    private void connectClient(final Channel channel, ClientHead client) {
+        final UUID sessionId = client.getSessionId();
+        if (!client.isConnected()) {
+            log.warn("Client with sessionId: {} with ip: {} disconnected during handshake. Channel closed!",
                         sessionId, channel.remoteAddress());
             channel.close();
             return;
@@ -197,7 +215,7 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
         authorizeHandler.connect(client);
 
         if (client.getCurrentTransport() == Transport.POLLING) {
-            SchedulerKey key = new SchedulerKey(SchedulerKey.Type.UPGRADE_TIMEOUT, sessionId);
+            SchedulerKey key = new SchedulerKey(SchedulerKey.Type.UPGRADE_TIMEOUT, sessionId, channel.eventLoop());
             scheduler.schedule(key, new Runnable() {
                 @Override
                 public void run() {
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import mockit.Mocked;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.Future;
+
+public class BroadcastAckAggregatorTest {
+
+    @Mocked
+    private SocketIOClient client;
+
+    private BroadcastAckAggregator<String> send(int clients) {
+        BroadcastAckAggregator<String> aggregator = new BroadcastAckAggregator<String>(String.class, 2);
+        for (int i = 0; i < clients; i++) {
+            aggregator.send(client, new Packet(PacketType.MESSAGE));
+        }
+        return aggregator;
+    }
+
+    @Test
+    public void testAllAcked() {
+        BroadcastAckAggregator<String> aggregator = send(3);
+        aggregator.onSuccess("1");
+        aggregator.onSuccess("2");
+        aggregator.loopFinished(10, TimeUnit.SECONDS);
+        Assert.assertFalse(aggregator.getFuture().isDone());
+
+        aggregator.onSuccess("3");
+        BroadcastAckResult<String> result = aggregator.getFuture().getNow();
+        Assert.assertEquals(3, result.getSuccessCount());
+        Assert.assertEquals(0, result.getTimeoutCount());
+        Assert.assertEquals(Arrays.asList("1", "2"), result.getSampledResults());
+    }
+
+    @Test
+    public void testPartialAckAndDeadline() throws InterruptedException {
+        BroadcastAckAggregator<String> aggregator = send(3);
+        aggregator.loopFinished(50, TimeUnit.MILLISECONDS);
+        aggregator.onSuccess("1");
+
+        Future<BroadcastAckResult<String>> future = aggregator.getFuture();
+        Assert.assertTrue(future.await(5, TimeUnit.SECONDS));
+        BroadcastAckResult<String> result = future.getNow();
+        Assert.assertEquals(1, result.getSuccessCount());
+        Assert.assertEquals(2, result.getTimeoutCount());
+
+        // late callbacks don't change completed result
+        aggregator.onTimeout();
+        aggregator.onSuccess("2");
+        Assert.assertSame(result, future.getNow());
+    }
+
+    @Test
+    public void testDisconnect() {
+        BroadcastAckAggregator<String> aggregator = send(2);
+        aggregator.loopFinished(10, TimeUnit.SECONDS);
+        aggregator.onSuccess("1");
+        // client disconnected before acknowledgement
+        aggregator.onTimeout();
+
+        BroadcastAckResult<String> result = aggregator.getFuture().getNow();
+        Assert.assertEquals(1, result.getSuccessCount());
+        Assert.assertEquals(1, result.getTimeoutCount());
+    }
+
+    @Test
+    public void testSampledBufferOutlivesAttachment() {
+        BroadcastAckAggregator<ByteBuf> aggregator = new BroadcastAckAggregator<ByteBuf>(ByteBuf.class, 1);
+        aggregator.send(client, new Packet(PacketType.MESSAGE));
+        aggregator.loopFinished(10, TimeUnit.SECONDS);
+
+        ByteBuf attachment = Unpooled.copiedBuffer("data", CharsetUtil.UTF_8);
+        aggregator.onSuccess(attachment.duplicate());
+        // released by InPacketHandler after callback invocation
+        attachment.release();
+
+        ByteBuf sample = aggregator.getFuture().getNow().getSampledResults().get(0);
+        Assert.assertEquals("data", sample.toString(CharsetUtil.UTF_8));
+    }
+
+}
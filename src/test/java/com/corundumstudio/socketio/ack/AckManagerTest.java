@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mockit.Expectations;
+import mockit.Mocked;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+public class AckManagerTest {
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final AckManager ackManager = new AckManager();
+
+    @Mocked
+    private SocketIOClient client;
+
+    @Mocked
+    private ClientHead clientHead;
+
+    @After
+    public void after() {
+        ackManager.shutdown();
+    }
+
+    private static class CountingCallback extends AckCallback<String> {
+
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicInteger timeouts = new AtomicInteger();
+
+        CountingCallback(int timeout) {
+            super(String.class, timeout);
+        }
+
+        @Override
+        public void onSuccess(String result) {
+            successes.incrementAndGet();
+        }
+
+        @Override
+        public void onTimeout() {
+            timeouts.incrementAndGet();
+        }
+
+    }
+
+    private Packet ack(long index) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.ACK);
+        packet.setAckId(index);
+        packet.setData(Arrays.<Object>asList("ok"));
+        return packet;
+    }
+
+    @Test
+    public void testRegisterAndAck() {
+        new Expectations() {{
+            client.getSessionId();
+            result = sessionId;
+        }};
+
+        CountingCallback[] callbacks = new CountingCallback[1000];
+        long[] indexes = new long[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = new CountingCallback(-1);
+            indexes[i] = ackManager.registerAck(sessionId, callbacks[i]);
+        }
+
+        // acks come out of order
+        for (int i = 0; i < callbacks.length; i += 3) {
+            ackManager.onAck(client, ack(indexes[i]));
+        }
+
+        for (int i = 0; i < callbacks.length; i++) {
+            if (i % 3 == 0) {
+                Assert.assertEquals(1, callbacks[i].successes.get());
+                Assert.assertNull(ackManager.getCallback(sessionId, indexes[i]));
+            } else {
+                Assert.assertEquals(0, callbacks[i].successes.get());
+                Assert.assertSame(callbacks[i], ackManager.getCallback(sessionId, indexes[i]));
+            }
+        }
+
+        // repeated ack is ignored
+        ackManager.onAck(client, ack(indexes[0]));
+        Assert.assertEquals(1, callbacks[0].successes.get());
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        CountingCallback callback = new CountingCallback(0) {
+            @Override
+            public void onTimeout() {
+                super.onTimeout();
+                latch.countDown();
+            }
+        };
+        CountingCallback waiting = new CountingCallback(60);
+
+        long index = ackManager.registerAck(sessionId, callback);
+        long waitingIndex = ackManager.registerAck(sessionId, waiting);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertNull(ackManager.getCallback(sessionId, index));
+        Assert.assertSame(waiting, ackManager.getCallback(sessionId, waitingIndex));
+        Assert.assertEquals(0, waiting.timeouts.get());
+    }
+
+    @Test
+    public void testPromiseTimeout() throws InterruptedException {
+        Promise<String> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+        long index = ackManager.registerAck(sessionId, new PromiseAckCallback<String>(String.class, 150, promise));
+
+        Assert.assertTrue(promise.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(promise.cause() instanceof TimeoutException);
+        Assert.assertNull(ackManager.getCallback(sessionId, index));
+    }
+
+    @Test
+    public void testDisconnect() throws InterruptedException {
+        new Expectations() {{
+            clientHead.getSessionId();
+            result = sessionId;
+        }};
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        CountingCallback first = new CountingCallback(-1) {
+            @Override
+            public void onTimeout() {
+                super.onTimeout();
+                latch.countDown();
+            }
+        };
+        CountingCallback second = new CountingCallback(60) {
+            @Override
+            public void onTimeout() {
+                super.onTimeout();
+                latch.countDown();
+            }
+        };
+        long index = ackManager.registerAck(sessionId, first);
+        ackManager.registerAck(sessionId, second);
+
+        ackManager.onDisconnect(clientHead);
+        Assert.assertNull(ackManager.getCallback(sessionId, index));
+
+        // timeouts are notified in batch by sweep
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, first.timeouts.get());
+        Assert.assertEquals(1, second.timeouts.get());
+    }
+
+    @Test
+    public void testEntryProbeChainsWrapAround() {
+        AckManager.AckEntry entry = ackManager.new AckEntry();
+        Map<Long, AckCallback<?>> expected = new HashMap<Long, AckCallback<?>>();
+        List<Long> outstanding = new ArrayList<Long>();
+        Random random = new Random(1);
+
+        // at most 5 outstanding ids keep table of 8 slots,
+        // so ids span it many times and removal order is random
+        for (int i = 0; i < 10000; i++) {
+            if (outstanding.size() < 5 && (outstanding.isEmpty() || random.nextBoolean())) {
+                CountingCallback callback = new CountingCallback(-1);
+                long index = entry.addAckCallback(callback, 0);
+                expected.put(index, callback);
+                outstanding.add(index);
+            } else {
+                Long index = outstanding.remove(random.nextInt(outstanding.size()));
+                Assert.assertSame(expected.remove(index), entry.removeCallback(index));
+                Assert.assertNull(entry.getAckCallback(index));
+            }
+            for (Map.Entry<Long, AckCallback<?>> e : expected.entrySet()) {
+                Assert.assertSame(e.getValue(), entry.getAckCallback(e.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void testEntryExpireWrapAround() {
+        AckManager.AckEntry entry = ackManager.new AckEntry();
+        Map<Long, AckCallback<?>> callbacks = new HashMap<Long, AckCallback<?>>();
+        Map<Long, Long> deadlines = new HashMap<Long, Long>();
+        Random random = new Random(2);
+
+        long now = 0;
+        for (int round = 0; round < 2000; round++) {
+            while (callbacks.size() < 5) {
+                CountingCallback callback = new CountingCallback(-1);
+                long deadline = now + 1 + random.nextInt(10);
+                long index = entry.addAckCallback(callback, deadline);
+                callbacks.put(index, callback);
+                deadlines.put(index, deadline);
+            }
+
+            now += random.nextInt(4);
+            List<AckCallback<?>> expired = new ArrayList<AckCallback<?>>();
+            entry.expire(now, expired);
+
+            List<AckCallback<?>> expectedExpired = new ArrayList<AckCallback<?>>();
+            for (Long index : new ArrayList<Long>(callbacks.keySet())) {
+                if (deadlines.get(index) <= now) {
+                    expectedExpired.add(callbacks.remove(index));
+                    deadlines.remove(index);
+                    Assert.assertNull(entry.getAckCallback(index));
+                } else {
+                    Assert.assertSame(callbacks.get(index), entry.getAckCallback(index));
+                }
+            }
+            Assert.assertEquals(expectedExpired.size(), expired.size());
+            Assert.assertTrue(expired.containsAll(expectedExpired));
+        }
+    }
+
+}
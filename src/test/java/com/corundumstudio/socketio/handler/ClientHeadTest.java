@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+public class ClientHeadTest {
+
+    private final HashedWheelTimeoutScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private final TestClients clients = new TestClients(new Configuration(), scheduler);
+    private ClientHead client;
+
+    @Before
+    public void before() {
+        client = clients.create(Transport.WEBSOCKET);
+    }
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+        clients.shutdown();
+    }
+
+    private Object field(String name) throws Exception {
+        Field field = ClientHead.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(client);
+    }
+
+    private TransportState state(Transport transport) throws Exception {
+        return ((TransportState[]) field("channels"))[transport.ordinal()];
+    }
+
+    @Test
+    public void testIdleClientState() throws Exception {
+        Assert.assertNull(field("store"));
+        Assert.assertNull(field("namespaceClients"));
+        Assert.assertNull(state(Transport.WEBSOCKET).peekPacketsQueue());
+        Assert.assertNull(state(Transport.POLLING).peekPacketsQueue());
+        Assert.assertEquals(0, client.getQueuedPacketsCount());
+        Assert.assertTrue(client.getNamespaces().isEmpty());
+    }
+
+    @Test
+    public void testLazyState() throws Exception {
+        client.getStore().set("key", "value");
+        Assert.assertSame(client.getStore(), field("store"));
+
+        client.send(new Packet(PacketType.NOOP));
+        Assert.assertNotNull(state(Transport.WEBSOCKET).peekPacketsQueue());
+        Assert.assertNull(state(Transport.POLLING).peekPacketsQueue());
+        Assert.assertEquals(1, client.getQueuedPacketsCount());
+    }
+
+}
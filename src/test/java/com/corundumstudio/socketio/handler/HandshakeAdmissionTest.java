@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+
+public class HandshakeAdmissionTest {
+
+    private static final long START = 1000L;
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final InetAddress address1 = address(1);
+    private final InetAddress address2 = address(2);
+    private final InetAddress address3 = address(3);
+
+    private static InetAddress address(int lastByte) {
+        try {
+            return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte});
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HandshakeAdmission admission(int rate, int ratePerIp, int queueSize) {
+        Configuration configuration = new Configuration();
+        configuration.setHandshakeRateLimit(rate);
+        configuration.setHandshakeRateLimitPerIp(ratePerIp);
+        configuration.setHandshakeQueueSize(queueSize);
+        configuration.setHandshakeRetryJitter(0);
+        return new HandshakeAdmission(configuration, START);
+    }
+
+    private int ipBuckets(HandshakeAdmission admission) throws Exception {
+        Field field = HandshakeAdmission.class.getDeclaredField("ipBuckets");
+        field.setAccessible(true);
+        return ((Map<?, ?>) field.get(admission)).size();
+    }
+
+    @Test
+    public void testBurst() {
+        HandshakeAdmission admission = admission(10, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0, admission.admit(address1, START));
+        }
+        Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address1, START));
+
+        // one token per interval
+        Assert.assertEquals(0, admission.admit(address1, START + INTERVAL));
+        Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address1, START + INTERVAL));
+        Assert.assertEquals(1, admission.getRetryAfter(START + INTERVAL));
+    }
+
+    @Test
+    public void testPerIpReject() {
+        HandshakeAdmission admission = admission(0, 2, 0);
+        Assert.assertEquals(0, admission.admit(address1, START));
+        Assert.assertEquals(0, admission.admit(address1, START));
+        Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address1, START));
+
+        Assert.assertEquals(0, admission.admit(address2, START));
+        Assert.assertEquals(0, admission.admit(null, START));
+    }
+
+    @Test
+    public void testQueueFullAndDequeue() {
+        HandshakeAdmission admission = admission(10, 0, 2);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0, admission.admit(address1, START));
+        }
+        Assert.assertEquals(INTERVAL, admission.admit(address1, START));
+        Assert.assertEquals(2 * INTERVAL, admission.admit(address1, START));
+        Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address1, START));
+
+        // processed handshake frees queue slot
+        admission.dequeue();
+        Assert.assertEquals(3 * INTERVAL, admission.admit(address1, START));
+        Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address1, START));
+    }
+
+    @Test
+    public void testIpTokenRelease() {
+        HandshakeAdmission admission = admission(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(0, admission.admit(address1, START));
+            Assert.assertEquals(0, admission.admit(address2, START));
+        }
+
+        // rejected by global limit, per IP tokens are returned
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(HandshakeAdmission.REJECTED, admission.admit(address3, START));
+        }
+        Assert.assertEquals(0, admission.admit(address3, START + INTERVAL));
+    }
+
+    @Test
+    public void testIpBucketsCleanup() throws Exception {
+        HandshakeAdmission admission = admission(0, 1, 0);
+        Assert.assertEquals(0, admission.admit(address1, START));
+        Assert.assertEquals(0, admission.admit(address2, START));
+        Assert.assertEquals(2, ipBuckets(admission));
+
+        // buckets are full again after one second
+        long now = START + TimeUnit.SECONDS.toNanos(2);
+        Assert.assertEquals(0, admission.admit(address3, now));
+        Assert.assertEquals(1, ipBuckets(admission));
+    }
+
+}
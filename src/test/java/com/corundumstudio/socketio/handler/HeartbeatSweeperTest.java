@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class HeartbeatSweeperTest {
+
+    private static final int PING_TIMEOUT = 60;
+    private static final int PING_INTERVAL = 40;
+
+    private final HashedWheelTimeoutScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private final TestClients clients = new TestClients(createConfiguration(), scheduler);
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+
+    @After
+    public void after() {
+        channel.finishAndReleaseAll();
+        scheduler.shutdown();
+        clients.shutdown();
+    }
+
+    private static Configuration createConfiguration() {
+        Configuration configuration = new Configuration();
+        configuration.setHeartbeatSweep(true);
+        configuration.setPingTimeout(PING_TIMEOUT);
+        configuration.setPingInterval(PING_INTERVAL);
+        return configuration;
+    }
+
+    private ClientHead createClient() {
+        return clients.create(Transport.WEBSOCKET);
+    }
+
+    @Test
+    public void testIdleClientDisconnected() throws InterruptedException {
+        HeartbeatSweeper sweeper = new HeartbeatSweeper(PING_TIMEOUT + PING_INTERVAL, TimeUnit.MILLISECONDS, 10);
+        ClientHead idleClient = createClient();
+        ClientHead activeClient = createClient();
+        sweeper.add(idleClient, channel.eventLoop());
+        sweeper.add(activeClient, channel.eventLoop());
+
+        // before timeout both clients are kept
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+        Assert.assertTrue(idleClient.isConnected());
+        Assert.assertTrue(activeClient.isConnected());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2 * (PING_TIMEOUT + PING_INTERVAL));
+        while (System.nanoTime() < deadline) {
+            activeClient.schedulePingTimeout();
+            Thread.sleep(10);
+            channel.runScheduledPendingTasks();
+        }
+
+        Assert.assertFalse(idleClient.isConnected());
+        Assert.assertTrue(activeClient.isConnected());
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.DisconnectableHub;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+
+/**
+ * Creates in-memory clients without a server for tests, launchers and benchmarks
+ */
+public class TestClients {
+
+    private final HandshakeData handshakeData = new HandshakeData(new DefaultHttpHeaders(),
+            Collections.<String, List<String>>emptyMap(), new InetSocketAddress(0), "/socket.io/", false);
+    private final DisconnectableHub hub = new DisconnectableHub() {
+        @Override
+        public void onDisconnect(ClientHead client) {
+        }
+    };
+    private final MemoryStoreFactory storeFactory = new MemoryStoreFactory();
+    private final ClientsBox clientsBox = new ClientsBox();
+    private final AckManager ackManager = new AckManager();
+
+    private final Configuration configuration;
+    private final CancelableScheduler scheduler;
+
+    public TestClients(Configuration configuration, CancelableScheduler scheduler) {
+        this.configuration = configuration;
+        this.scheduler = scheduler;
+    }
+
+    public ClientHead create(Transport transport) {
+        return create(transport, handshakeData);
+    }
+
+    public ClientHead create(Transport transport, HandshakeData handshakeData) {
+        return new ClientHead(UUID.randomUUID(), ackManager, hub, storeFactory,
+                handshakeData, clientsBox, transport, scheduler, configuration);
+    }
+
+    public void shutdown() {
+        ackManager.shutdown();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.TestClients;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+
+/**
+ * Prints heap retained per idle client session.
+ * Every session has its own handshake data with typical browser headers.
+ *
+ * Run with -Xmx2g, amount of sessions is the first argument.
+ */
+public class ClientHeadFootprintLauncher {
+
+    private static HandshakeData createHandshakeData(int i) {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.set(HttpHeaderNames.HOST, "localhost:9092");
+        headers.set(HttpHeaderNames.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko)");
+        headers.set(HttpHeaderNames.ACCEPT, "*/*");
+        headers.set(HttpHeaderNames.ACCEPT_ENCODING, "gzip, deflate");
+        headers.set(HttpHeaderNames.ORIGIN, "http://localhost:8080");
+        headers.set(HttpHeaderNames.COOKIE, "user=" + i);
+
+        Map<String, List<String>> params = new HashMap<String, List<String>>();
+        params.put("EIO", Arrays.asList("3"));
+        params.put("transport", Arrays.asList("websocket"));
+        return new HandshakeData(headers, params, new InetSocketAddress("127.0.0.1", 40000 + i % 20000),
+                new InetSocketAddress("127.0.0.1", 9092), "/socket.io/?EIO=3&transport=websocket", true);
+    }
+
+    public static void main(String[] args) {
+        int sessions = 100000;
+        if (args.length > 0) {
+            sessions = Integer.parseInt(args[0]);
+        }
+
+        Configuration configuration = new Configuration();
+        HashedWheelTimeoutScheduler scheduler = new HashedWheelTimeoutScheduler();
+        TestClients factory = new TestClients(configuration, scheduler);
+
+        long baseline = LoadServerLauncher.usedHeap();
+        HandshakeData[] handshakes = new HandshakeData[sessions];
+        for (int i = 0; i < handshakes.length; i++) {
+            handshakes[i] = createHandshakeData(i);
+        }
+        long handshakesHeap = LoadServerLauncher.usedHeap() - baseline;
+
+        baseline = LoadServerLauncher.usedHeap();
+        ClientHead[] clients = new ClientHead[sessions];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = factory.create(Transport.WEBSOCKET, handshakes[i]);
+        }
+        long clientsHeap = LoadServerLauncher.usedHeap() - baseline;
+
+        System.out.println("ClientHead: " + clientsHeap / sessions + " bytes per session, "
+                + "handshake data: " + handshakesHeap / sessions + " bytes per session, "
+                + "sessions: " + clients.length);
+        scheduler.shutdown();
+        factory.shutdown();
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshaker;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Simulated engine.io v3 client.
+ *
+ * Opens session with polling handshake, upgrades it to websocket
+ * and then sends pings and events with ack requests.
+ * Outgoing packets are framed by server's own PacketEncoder.
+ */
+class LoadClient {
+
+    private static final int MAX_CONTENT_LENGTH = 1024 * 1024;
+    private static final ByteBuf BINARY_MESSAGE_TYPE = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[] {4}));
+
+    // in-flight acks are expected to fit into the ring
+    private static final int ACK_RING_MASK = 1023;
+
+    private final LoadGenerator generator;
+    private final InetSocketAddress localAddress;
+    private final LoadStats stats;
+
+    private final long[] sendTimes = new long[ACK_RING_MASK + 1];
+    private long nextAckId;
+
+    private long connectStart;
+    private String sessionId;
+    private long pingInterval;
+
+    private Channel channel;
+    private ScheduledFuture<?> pingFuture;
+    private ScheduledFuture<?> eventFuture;
+
+    LoadClient(LoadGenerator generator, InetSocketAddress localAddress) {
+        this.generator = generator;
+        this.localAddress = localAddress;
+        this.stats = generator.getStats();
+    }
+
+    void connect() {
+        connectStart = System.nanoTime();
+        ChannelFuture future = generator.bootstrap().handler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ch.pipeline().addLast(new HttpClientCodec(),
+                        new HttpObjectAggregator(MAX_CONTENT_LENGTH),
+                        new PollingHandshakeHandler());
+            }
+        }).connect(generator.getRemoteAddress(), localAddress);
+        future.addListener(failureListener);
+    }
+
+    private final ChannelFutureListener failureListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            if (!future.isSuccess()) {
+                fail(future.cause());
+            }
+        }
+    };
+
+    private void fail(Throwable cause) {
+        stats.failed.incrementAndGet();
+        generator.onFailure(cause);
+    }
+
+    private void upgrade() {
+        InetSocketAddress remote = generator.getRemoteAddress();
+        URI uri = URI.create("ws://" + remote.getHostName() + ":" + remote.getPort()
+                + generator.getContext() + "/?EIO=3&transport=websocket&sid=" + sessionId);
+        final WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(
+                uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders(), MAX_CONTENT_LENGTH);
+
+        ChannelFuture future = generator.bootstrap().handler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ch.pipeline().addLast(new HttpClientCodec(),
+                        new HttpObjectAggregator(MAX_CONTENT_LENGTH),
+                        new WebSocketHandler(handshaker));
+            }
+        }).connect(remote, localAddress);
+        future.addListener(failureListener);
+    }
+
+    private void onOpen(Channel channel) {
+        this.channel = channel;
+        stats.onConnected(connectStart);
+
+        pingFuture = channel.eventLoop().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                LoadClient.this.channel.writeAndFlush(new TextWebSocketFrame("2"));
+            }
+        }, pingInterval, pingInterval, TimeUnit.MILLISECONDS);
+
+        long eventInterval = generator.getEventInterval();
+        if (eventInterval > 0) {
+            // spread events of all clients over the interval
+            long delay = PlatformDependent.threadLocalRandom().nextInt((int) eventInterval);
+            eventFuture = channel.eventLoop().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sendEvent();
+                }
+            }, delay, eventInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onClose() {
+        if (pingFuture != null) {
+            pingFuture.cancel(false);
+        }
+        if (eventFuture != null) {
+            eventFuture.cancel(false);
+        }
+        if (channel != null) {
+            stats.disconnected.incrementAndGet();
+        }
+    }
+
+    private void sendEvent() {
+        if (!channel.isWritable()) {
+            // server doesn't keep up, don't queue events on client side
+            stats.eventsSkipped.incrementAndGet();
+            return;
+        }
+
+        long ackId = nextAckId++;
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setAckId(ackId);
+        if (PlatformDependent.threadLocalRandom().nextInt(100) < generator.getBinaryPercent()) {
+            packet.setName(LoadServerLauncher.BINARY_EVENT);
+            packet.setData(Arrays.<Object>asList(generator.getBinaryPayload()));
+        } else {
+            packet.setName(LoadServerLauncher.ECHO_EVENT);
+            packet.setData(Arrays.<Object>asList(generator.getMessage()));
+        }
+
+        ByteBuf out = generator.getEncoder().allocateBuffer(channel.alloc());
+        try {
+            generator.getEncoder().encodePacket(packet, out, channel.alloc(), true);
+        } catch (IOException e) {
+            out.release();
+            fail(e);
+            return;
+        }
+
+        sendTimes[(int) (ackId & ACK_RING_MASK)] = System.nanoTime();
+        channel.write(new TextWebSocketFrame(out));
+        for (ByteBuf attachment : packet.getAttachments()) {
+            ByteBuf frame = Unpooled.wrappedBuffer(BINARY_MESSAGE_TYPE.duplicate(), attachment);
+            channel.write(new BinaryWebSocketFrame(frame));
+        }
+        channel.flush();
+        stats.eventsSent.incrementAndGet();
+    }
+
+    private void onMessage(ChannelHandlerContext ctx, ByteBuf content) {
+        int index = content.readerIndex();
+        byte type = content.getByte(index);
+        if (type == '3') {
+            if (content.readableBytes() == 1) {
+                stats.pongsReceived.incrementAndGet();
+                return;
+            }
+            // 3probe
+            ctx.writeAndFlush(new TextWebSocketFrame("5"));
+            onOpen(ctx.channel());
+        } else if (type == '4' && content.readableBytes() > 1) {
+            byte subType = content.getByte(index + 1);
+            if (subType == '3') {
+                long ackId = readAckId(content, index + 2);
+                stats.onAck(sendTimes[(int) (ackId & ACK_RING_MASK)]);
+            } else if (subType == '2') {
+                stats.eventsReceived.incrementAndGet();
+            }
+        } else if (type == '1') {
+            ctx.close();
+        }
+    }
+
+    private long readAckId(ByteBuf content, int index) {
+        long result = 0;
+        for (int i = index; i < content.writerIndex(); i++) {
+            byte b = content.getByte(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            result = result * 10 + (b - '0');
+        }
+        return result;
+    }
+
+    /**
+     * @return value of top level field in handshake json
+     */
+    private static String readField(String body, String name) {
+        String key = "\"" + name + "\":";
+        int start = body.indexOf(key);
+        if (start == -1) {
+            return null;
+        }
+        start += key.length();
+        int end = start;
+        if (body.charAt(start) == '"') {
+            start++;
+            end = body.indexOf('"', start);
+        } else {
+            while (end < body.length() && body.charAt(end) != ',' && body.charAt(end) != '}') {
+                end++;
+            }
+        }
+        return body.substring(start, end);
+    }
+
+    private class PollingHandshakeHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                    generator.getContext() + "/?EIO=3&transport=polling&b64=1");
+            request.headers().set(HttpHeaderNames.HOST, generator.getRemoteAddress().getHostName());
+            ctx.writeAndFlush(request);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) throws Exception {
+            ctx.close();
+            if (!HttpResponseStatus.OK.equals(response.status())) {
+                fail(new IllegalStateException("Handshake failed: " + response.status()));
+                return;
+            }
+
+            String body = response.content().toString(CharsetUtil.UTF_8);
+            sessionId = readField(body, "sid");
+            String interval = readField(body, "pingInterval");
+            if (sessionId == null || interval == null) {
+                fail(new IllegalStateException("Unexpected handshake: " + body));
+                return;
+            }
+            pingInterval = Long.parseLong(interval);
+            upgrade();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            fail(cause);
+            ctx.close();
+        }
+
+    }
+
+    private class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
+
+        private final WebSocketClientHandshaker handshaker;
+
+        WebSocketHandler(WebSocketClientHandshaker handshaker) {
+            this.handshaker = handshaker;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            handshaker.handshake(ctx.channel());
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            onClose();
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (!handshaker.isHandshakeComplete()) {
+                handshaker.finishHandshake(ctx.channel(), (FullHttpResponse) msg);
+                ctx.writeAndFlush(new TextWebSocketFrame("2probe"));
+                return;
+            }
+
+            if (msg instanceof TextWebSocketFrame) {
+                onMessage(ctx, ((TextWebSocketFrame) msg).content());
+            } else if (msg instanceof CloseWebSocketFrame) {
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            fail(cause);
+            ctx.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Loopback load generator simulating engine.io v3 websocket clients.
+ *
+ * Clients are connected at fixed rate, each of them sends pings and
+ * events with ack requests, part of events carries binary attachment.
+ * Connections/sec, events/sec and end-to-end ack latency are reported every second.
+ *
+ * Settings are passed as system properties:
+ * <pre>
+ * load.host=localhost          server host
+ * load.port=9092               server port
+ * load.embeddedServer=true     start #{@link LoadServerLauncher} server in the same JVM
+ * load.connections=10000       number of clients
+ * load.rate=1000               new connections per second
+ * load.eventsPerSecond=1       events per second sent by each client, 0 disables events
+ * load.binaryPercent=10        percent of events with binary attachment
+ * load.payloadSize=256         binary attachment size
+ * load.duration=60             seconds of steady load after all clients are connected
+ * load.localAddresses=1        number of 127.0.0.x source addresses,
+ *                              each of them gives ~28k ephemeral ports to loopback connections
+ * load.threads=0               client event loop threads, 0 for netty default
+ * </pre>
+ *
+ * For 100k+ sockets raise open files limit and use
+ * <code>-Dload.localAddresses=8</code>. Run server with #{@link LoadServerLauncher}
+ * in separate JVM to get heap per connection of server alone.
+ */
+public class LoadGenerator {
+
+    private static final String CONTEXT = "/socket.io";
+
+    private final LoadStats stats = new LoadStats();
+    private final LatencyHistogram steadyLatency = new LatencyHistogram();
+    private final AtomicInteger reportedFailures = new AtomicInteger();
+
+    private final PacketEncoder encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+    private final InetSocketAddress remoteAddress;
+    private final EventLoopGroup group;
+    private final Bootstrap bootstrap;
+
+    private final int connections = Integer.getInteger("load.connections", 10000);
+    private final int rate = Integer.getInteger("load.rate", 1000);
+    private final int eventsPerSecond = Integer.getInteger("load.eventsPerSecond", 1);
+    private final int binaryPercent = Integer.getInteger("load.binaryPercent", 10);
+    private final int duration = Integer.getInteger("load.duration", 60);
+    private final int localAddresses = Integer.getInteger("load.localAddresses", 1);
+
+    private final Map<String, Object> message = new HashMap<String, Object>();
+    private final byte[] binaryPayload = new byte[Integer.getInteger("load.payloadSize", 256)];
+
+    public LoadGenerator(InetSocketAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+        this.group = new NioEventLoopGroup(Integer.getInteger("load.threads", 0));
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_REUSEADDR, true);
+
+        message.put("userName", "user");
+        message.put("message", "Lorem ipsum dolor sit amet, consectetur adipiscing elit");
+        Arrays.fill(binaryPayload, (byte) 7);
+    }
+
+    LoadStats getStats() {
+        return stats;
+    }
+
+    Bootstrap bootstrap() {
+        return bootstrap.clone();
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    String getContext() {
+        return CONTEXT;
+    }
+
+    PacketEncoder getEncoder() {
+        return encoder;
+    }
+
+    long getEventInterval() {
+        if (eventsPerSecond <= 0) {
+            return 0;
+        }
+        return Math.max(1, 1000 / eventsPerSecond);
+    }
+
+    int getBinaryPercent() {
+        return binaryPercent;
+    }
+
+    byte[] getBinaryPayload() {
+        return binaryPayload;
+    }
+
+    Map<String, Object> getMessage() {
+        return message;
+    }
+
+    void onFailure(Throwable cause) {
+        if (reportedFailures.incrementAndGet() <= 10) {
+            System.err.println("Client failure: " + cause);
+        }
+    }
+
+    private InetSocketAddress localAddress(int index) {
+        if (localAddresses <= 1) {
+            return null;
+        }
+        return new InetSocketAddress("127.0.0." + (1 + index % localAddresses), 0);
+    }
+
+    public void run() throws InterruptedException {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        final long start = System.nanoTime();
+        reporter.scheduleAtFixedRate(new Runnable() {
+
+            private long lastConnected;
+            private long lastSent;
+            private long lastAcks;
+
+            @Override
+            public void run() {
+                long connected = stats.connected.get();
+                long sent = stats.eventsSent.get();
+                long acks = stats.acksReceived.get();
+                LatencyHistogram latency = stats.ackLatency.reset();
+                steadyLatency.add(latency);
+
+                System.out.println(String.format("%5ds connected: %d (+%d/s) failed: %d closed: %d"
+                        + " events: %d/s acks: %d/s skipped: %d ack latency us p50: %d p99: %d p999: %d",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                        connected, connected - lastConnected, stats.failed.get(), stats.disconnected.get(),
+                        sent - lastSent, acks - lastAcks, stats.eventsSkipped.get(),
+                        latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                        latency.getValueAtPercentile(99.9)));
+
+                lastConnected = connected;
+                lastSent = sent;
+                lastAcks = acks;
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
+        try {
+            for (int i = 0; i < connections; i++) {
+                long due = start + TimeUnit.SECONDS.toNanos(i) / rate;
+                long wait = due - System.nanoTime();
+                if (wait > TimeUnit.MILLISECONDS.toNanos(1)) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                new LoadClient(this, localAddress(i)).connect();
+            }
+
+            long rampDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (stats.connected.get() + stats.failed.get() < connections
+                    && System.nanoTime() < rampDeadline) {
+                Thread.sleep(10);
+            }
+            long rampNanos = System.nanoTime() - start;
+            long connected = stats.connected.get();
+
+            steadyLatency.reset();
+            stats.ackLatency.reset();
+            long acksBefore = stats.acksReceived.get();
+            long steadyStart = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+            long steadyNanos = System.nanoTime() - steadyStart;
+            steadyLatency.add(stats.ackLatency.reset());
+            long acks = stats.acksReceived.get() - acksBefore;
+
+            System.out.println("Connected: " + connected + " of " + connections
+                    + ", connections/sec: " + connected * TimeUnit.SECONDS.toNanos(1) / rampNanos
+                    + ", connect latency us p50: " + stats.connectLatency.getValueAtPercentile(50)
+                    + " p99: " + stats.connectLatency.getValueAtPercentile(99));
+            System.out.println("Steady load: events/sec: " + acks * TimeUnit.SECONDS.toNanos(1) / steadyNanos
+                    + ", ack latency us p50: " + steadyLatency.getValueAtPercentile(50)
+                    + " p99: " + steadyLatency.getValueAtPercentile(99)
+                    + " p999: " + steadyLatency.getValueAtPercentile(99.9));
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    public void shutdown() {
+        group.shutdownGracefully();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = System.getProperty("load.host", "localhost");
+        int port = Integer.getInteger("load.port", 9092);
+
+        SocketIOServer server = null;
+        long baseline = 0;
+        if (Boolean.parseBoolean(System.getProperty("load.embeddedServer", "true"))) {
+            server = LoadServerLauncher.createServer(host, port);
+            server.start();
+            baseline = LoadServerLauncher.usedHeap();
+        }
+
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port));
+        try {
+            generator.run();
+
+            if (server != null) {
+                int clients = server.getAllClients().size();
+                long heap = LoadServerLauncher.usedHeap() - baseline;
+                // client channels share the heap with server
+                System.out.println("Heap per connection (server and client side): "
+                        + (clients == 0 ? 0 : heap / clients) + " bytes");
+            }
+        } finally {
+            generator.shutdown();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+}
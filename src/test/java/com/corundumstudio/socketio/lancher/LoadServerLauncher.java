@@ -0,0 +1,70 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+
+/**
+ * Server side of load test driven by #{@link LoadGenerator}.
+ * Acknowledges every event and reports heap used per connection.
+ */
+public class LoadServerLauncher {
+
+    static final String ECHO_EVENT = "echo";
+    static final String BINARY_EVENT = "binary";
+
+    static SocketIOServer createServer(String hostname, int port) {
+        Configuration config = new Configuration();
+        config.setHostname(hostname);
+        config.setPort(port);
+        config.setMaxFramePayloadLength(1024 * 1024);
+        config.setMaxHttpContentLength(1024 * 1024);
+        config.getSocketConfig().setReuseAddress(true);
+        config.getSocketConfig().setAcceptBackLog(8192);
+
+        SocketIOServer server = new SocketIOServer(config);
+        server.addEventListener(ECHO_EVENT, Map.class, new DataListener<Map>() {
+            @Override
+            public void onData(SocketIOClient client, Map data, AckRequest ackRequest) {
+                ackRequest.sendAckData(data);
+            }
+        });
+        server.addEventListener(BINARY_EVENT, byte[].class, new DataListener<byte[]>() {
+            @Override
+            public void onData(SocketIOClient client, byte[] data, AckRequest ackRequest) {
+                ackRequest.sendAckData(data.length);
+            }
+        });
+        return server;
+    }
+
+    /**
+     * @return heap used after full gc
+     */
+    static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        SocketIOServer server = createServer("localhost", 9092);
+        server.start();
+
+        long baseline = usedHeap();
+        while (true) {
+            Thread.sleep(10000);
+
+            int clients = server.getAllClients().size();
+            long heap = usedHeap() - baseline;
+            System.out.println("clients: " + clients
+                    + ", heap: " + heap / 1024 + " KB"
+                    + ", heap per connection: " + (clients == 0 ? 0 : heap / clients) + " bytes");
+        }
+    }
+
+}
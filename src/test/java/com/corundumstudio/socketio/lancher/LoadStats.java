@@ -0,0 +1,33 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters shared by all simulated clients of #{@link LoadGenerator}
+ */
+class LoadStats {
+
+    final AtomicLong connected = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong disconnected = new AtomicLong();
+    final AtomicLong eventsSent = new AtomicLong();
+    final AtomicLong eventsSkipped = new AtomicLong();
+    final AtomicLong acksReceived = new AtomicLong();
+    final AtomicLong eventsReceived = new AtomicLong();
+    final AtomicLong pongsReceived = new AtomicLong();
+
+    final LatencyHistogram connectLatency = new LatencyHistogram();
+    final LatencyHistogram ackLatency = new LatencyHistogram();
+
+    void onConnected(long startNanos) {
+        connected.incrementAndGet();
+        connectLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    void onAck(long sendNanos) {
+        acksReceived.incrementAndGet();
+        ackLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sendNanos));
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.corundumstudio.socketio.lancher;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.misc.SessionIdMap;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Prints heap used by session lookup maps per session.
+ * Session ids are allocated beforehand since they are owned by clients.
+ *
+ * Run with -Xmx2g, amount of sessions is the first argument.
+ */
+public class SessionMapFootprintLauncher {
+
+    public static void main(String[] args) {
+        int sessions = 1000000;
+        if (args.length > 0) {
+            sessions = Integer.parseInt(args[0]);
+        }
+
+        UUID[] ids = new UUID[sessions];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        Object value = new Object();
+
+        long baseline = LoadServerLauncher.usedHeap();
+        Map<UUID, Object> uuidMap = PlatformDependent.newConcurrentHashMap();
+        for (UUID id : ids) {
+            uuidMap.put(id, value);
+        }
+        long uuidMapHeap = LoadServerLauncher.usedHeap() - baseline;
+        System.out.println("ConcurrentHashMap<UUID>: " + uuidMapHeap / sessions + " bytes per session, size: " + uuidMap.size());
+        uuidMap = null;
+
+        baseline = LoadServerLauncher.usedHeap();
+        SessionIdMap<Object> sessionIdMap = new SessionIdMap<Object>();
+        for (UUID id : ids) {
+            sessionIdMap.put(id, value);
+        }
+        long sessionIdMapHeap = LoadServerLauncher.usedHeap() - baseline;
+        System.out.println("SessionIdMap: " + sessionIdMapHeap / sessions + " bytes per session, size: " + sessionIdMap.size());
+    }
+
+}
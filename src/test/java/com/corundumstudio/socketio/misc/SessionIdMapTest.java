@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SessionIdMapTest {
+
+    @Test
+    public void testParse() {
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            String sid = id.toString();
+            Assert.assertTrue(SessionIds.isCanonical(sid));
+            Assert.assertEquals(id.getMostSignificantBits(), SessionIds.parseMostSignificantBits(sid));
+            Assert.assertEquals(id.getLeastSignificantBits(), SessionIds.parseLeastSignificantBits(sid));
+            Assert.assertEquals(id.getLeastSignificantBits(), SessionIds.parseLeastSignificantBits(sid.toUpperCase()));
+        }
+        Assert.assertFalse(SessionIds.isCanonical("1-2-3-4-5"));
+        Assert.assertFalse(SessionIds.isCanonical("g2345678-1234-1234-1234-123456789012"));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        SessionIdMap<Integer> map = new SessionIdMap<Integer>();
+        UUID[] ids = new UUID[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            Assert.assertNull(map.put(ids[i], i));
+        }
+        Assert.assertEquals(ids.length, map.size());
+
+        for (int i = 0; i < ids.length; i += 2) {
+            Assert.assertEquals(Integer.valueOf(i), map.remove(ids[i]));
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (i % 2 == 0) {
+                Assert.assertNull(map.get(ids[i]));
+            } else {
+                Assert.assertEquals(Integer.valueOf(i), map.get(ids[i]));
+            }
+        }
+        Assert.assertEquals(ids.length / 2, map.size());
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final SessionIdMap<Integer> map = new SessionIdMap<Integer>();
+        final UUID[] ids = new UUID[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            map.put(ids[i], i);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger misses = new AtomicInteger();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        for (int j = 0; j < ids.length; j++) {
+                            if (!Integer.valueOf(j).equals(map.get(ids[j]))) {
+                                misses.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        // other sessions are added and removed, so present ones are shifted and rehashed
+        for (int i = 0; i < 10; i++) {
+            UUID[] churn = new UUID[10000];
+            for (int j = 0; j < churn.length; j++) {
+                churn[j] = UUID.randomUUID();
+                map.put(churn[j], -1);
+            }
+            for (UUID id : churn) {
+                map.remove(id);
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertEquals(0, misses.get());
+        Assert.assertEquals(ids.length, map.size());
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.parser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.ack.PromiseAckCallback;
+import com.corundumstudio.socketio.protocol.AckArgs;
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+public class AttachmentReadTest {
+
+    private final JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+
+    private Event read(String json, List<ByteBuf> attachments) throws IOException {
+        ByteBuf source = Unpooled.copiedBuffer(json, CharsetUtil.UTF_8);
+        return jsonSupport.readValue("", new ByteBufInputStream(source), Event.class, attachments);
+    }
+
+    @Test
+    public void testTypedAttachments() throws IOException {
+        jsonSupport.addEventMapping("", "file", byte[].class, ByteBuf.class);
+
+        List<ByteBuf> attachments = Arrays.asList(Unpooled.wrappedBuffer(new byte[] {1, 2, 3}),
+                                                    Unpooled.wrappedBuffer(new byte[] {4, 5}));
+        Event event = read("[\"file\",{\"_placeholder\":true,\"num\":0},{\"num\":1,\"_placeholder\":true}]", attachments);
+
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) event.getArgs().get(0));
+        ByteBuf buf = (ByteBuf) event.getArgs().get(1);
+        Assert.assertEquals(2, buf.readableBytes());
+        Assert.assertEquals(4, buf.getByte(buf.readerIndex()));
+    }
+
+    @Test
+    public void testUntypedAttachments() throws IOException {
+        jsonSupport.addEventMapping("", "upload", Map.class);
+
+        List<ByteBuf> attachments = Arrays.asList(Unpooled.wrappedBuffer(new byte[] {7}));
+        Event event = read("[\"upload\",{\"name\":\"a.bin\",\"data\":{\"_placeholder\":true,\"num\":0}}]", attachments);
+
+        Map<?, ?> arg = (Map<?, ?>) event.getArgs().get(0);
+        Assert.assertEquals("a.bin", arg.get("name"));
+        Assert.assertArrayEquals(new byte[] {7}, (byte[]) arg.get("data"));
+    }
+
+    @Test
+    public void testBase64WithoutAttachments() throws IOException {
+        jsonSupport.addEventMapping("", "legacy", byte[].class);
+
+        Event event = read("[\"legacy\",\"AQID\"]", null);
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) event.getArgs().get(0));
+    }
+
+    @Test
+    public void testAsyncAckResultOutlivesAttachment() throws IOException {
+        Promise<ByteBuf> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+        PromiseAckCallback<ByteBuf> callback = new PromiseAckCallback<ByteBuf>(ByteBuf.class, 1000, promise);
+
+        ByteBuf attachment = Unpooled.copiedBuffer("data", CharsetUtil.UTF_8);
+        ByteBuf source = Unpooled.copiedBuffer("[{\"_placeholder\":true,\"num\":0}]", CharsetUtil.UTF_8);
+        AckArgs args = jsonSupport.readAckArgs(new ByteBufInputStream(source), callback, Arrays.asList(attachment));
+        callback.onSuccess((ByteBuf) args.getArgs().get(0));
+        // released by InPacketHandler after ack handling
+        attachment.release();
+
+        ByteBuf result = promise.getNow();
+        Assert.assertEquals("data", result.toString(CharsetUtil.UTF_8));
+        result.release();
+        Assert.assertEquals(0, attachment.refCnt());
+    }
+
+}
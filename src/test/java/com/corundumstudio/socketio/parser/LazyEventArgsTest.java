@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.parser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.listener.MultiTypeEventListener;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketDecoder;
+
+public class LazyEventArgsTest {
+
+    private PacketDecoder createDecoder() {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        Configuration configuration = new Configuration();
+        configuration.setJsonSupport(jsonSupport);
+        NamespacesHub namespacesHub = new NamespacesHub(configuration);
+        Namespace namespace = namespacesHub.create(Namespace.DEFAULT_NAME);
+        namespace.addMultiTypeEventListener("chat", new MultiTypeEventListener() {
+            @Override
+            public void onData(SocketIOClient client, MultiTypeArgs data, AckRequest ackSender) {
+            }
+        }, Map.class, Integer.class, String.class);
+        return new PacketDecoder(jsonSupport, null, namespacesHub, true);
+    }
+
+    @Test
+    public void testLazyArgs() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("42[\"chat\", {\"a\":[1,2]} ,2,\"x,y\"]", CharsetUtil.UTF_8);
+        Packet packet = createDecoder().decodePackets(buffer, null);
+
+        Assert.assertEquals("chat", packet.getName());
+        List<Object> args = packet.getData();
+        Assert.assertEquals(3, args.size());
+        Assert.assertEquals("x,y", args.get(2));
+        Assert.assertEquals(2, args.get(1));
+        Map<?, ?> map = (Map<?, ?>) args.get(0);
+        Assert.assertEquals(2, ((List<?>) map.get("a")).size());
+        Assert.assertSame(map, args.get(0));
+
+        packet.releaseAttachments();
+        Assert.assertEquals(1, buffer.refCnt());
+        buffer.release();
+    }
+
+    @Test
+    public void testEventWithoutListener() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("42[\"unknown\",{]", CharsetUtil.UTF_8);
+        Packet packet = createDecoder().decodePackets(buffer, null);
+
+        Assert.assertEquals("unknown", packet.getName());
+        Assert.assertNull(packet.getData());
+        Assert.assertNull(packet.getDataSource());
+        buffer.release();
+    }
+
+}
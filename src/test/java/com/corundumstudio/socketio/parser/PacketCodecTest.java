@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.parser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.protocol.JacksonPacketCodec;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.fasterxml.jackson.core.JsonFactory;
+
+public class PacketCodecTest {
+
+    private final JacksonPacketCodec codec = new JacksonPacketCodec("json", new JsonFactory());
+
+    @Test
+    public void testEncodeEvent() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.BINARY_EVENT);
+        packet.setName("chat");
+        packet.setAckId(3L);
+        packet.setData(Arrays.<Object>asList("hi", 1));
+
+        ByteBuf buffer = Unpooled.buffer();
+        codec.encode(packet, new ByteBufOutputStream(buffer));
+        Assert.assertEquals("{\"type\":2,\"nsp\":\"/\",\"id\":3,\"data\":[\"chat\",\"hi\",1]}", buffer.toString(CharsetUtil.UTF_8));
+        buffer.release();
+    }
+
+    @Test
+    public void testEncodeRawEvent() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("chat");
+        packet.setNsp("/room");
+        packet.setDataSource(Unpooled.copiedBuffer("{\"a\":1}, \"b\"", CharsetUtil.UTF_8));
+
+        ByteBuf buffer = Unpooled.buffer();
+        codec.encode(packet, new ByteBufOutputStream(buffer));
+        Assert.assertEquals("{\"type\":2,\"nsp\":\"/room\",\"data\":[\"chat\",{\"a\":1},\"b\"]}", buffer.toString(CharsetUtil.UTF_8));
+        buffer.release();
+        packet.releaseAttachments();
+    }
+
+    @Test
+    public void testDecodeEvent() throws IOException {
+        codec.addEventMapping("", "chat", String.class, Integer.class);
+        ByteBuf buffer = Unpooled.copiedBuffer("{\"type\":2,\"nsp\":\"/\",\"id\":5,\"data\":[\"chat\",\"hi\",1]}", CharsetUtil.UTF_8);
+        Packet packet = codec.decode(new ByteBufInputStream(buffer), null, null);
+
+        Assert.assertEquals(PacketType.MESSAGE, packet.getType());
+        Assert.assertEquals(PacketType.EVENT, packet.getSubType());
+        Assert.assertEquals("", packet.getNsp());
+        Assert.assertEquals(5L, (long) packet.getAckId());
+        Assert.assertEquals("chat", packet.getName());
+        List<Object> args = packet.getData();
+        Assert.assertEquals(Arrays.<Object>asList("hi", 1), args);
+        buffer.release();
+    }
+
+    @Test
+    public void testDecodeEventDataBeforeNamespace() throws IOException {
+        codec.addEventMapping("/chat", "message", String.class);
+        ByteBuf buffer = Unpooled.copiedBuffer("{\"type\":2,\"data\":[\"message\",\"hi\",{\"extra\":[1]}],\"id\":1,\"nsp\":\"/chat\"}", CharsetUtil.UTF_8);
+        Packet packet = codec.decode(new ByteBufInputStream(buffer), null, null);
+
+        Assert.assertEquals(PacketType.EVENT, packet.getSubType());
+        Assert.assertEquals("/chat", packet.getNsp());
+        Assert.assertEquals(1L, (long) packet.getAckId());
+        Assert.assertEquals("message", packet.getName());
+        List<Object> args = packet.getData();
+        Assert.assertEquals(Arrays.<Object>asList("hi"), args);
+        buffer.release();
+    }
+
+    @Test
+    public void testDecodeRawEvent() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("{\"type\":2,\"nsp\":\"/\",\"data\":[\"relay\",{\"a\":1},\"b\"]}", CharsetUtil.UTF_8);
+        Packet packet = codec.decode(new ByteBufInputStream(buffer), null, null);
+
+        Assert.assertEquals("relay", packet.getName());
+        Assert.assertNull(packet.getData());
+        Assert.assertEquals("{\"a\":1},\"b\"", packet.getDataSource().toString(CharsetUtil.UTF_8));
+        packet.releaseAttachments();
+        buffer.release();
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.parser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.listener.RawEventListener;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketDecoder;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+public class RawEventTest {
+
+    private final JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+
+    private PacketDecoder createDecoder() {
+        Configuration configuration = new Configuration();
+        configuration.setJsonSupport(jsonSupport);
+        NamespacesHub namespacesHub = new NamespacesHub(configuration);
+        Namespace namespace = namespacesHub.create(Namespace.DEFAULT_NAME);
+        namespace.addRawEventListener("chat", new RawEventListener() {
+            @Override
+            public void onData(SocketIOClient client, ByteBuf args, AckRequest ackSender) {
+            }
+        });
+        return new PacketDecoder(jsonSupport, null, namespacesHub);
+    }
+
+    @Test
+    public void testDecodeRawEvent() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("42[\"chat\",{\"a\":[1,\"]\"]},2]", CharsetUtil.UTF_8);
+        Packet packet = createDecoder().decodePackets(buffer, null);
+
+        Assert.assertEquals(PacketType.EVENT, packet.getSubType());
+        Assert.assertEquals("chat", packet.getName());
+        Assert.assertNull(packet.getData());
+        Assert.assertEquals("{\"a\":[1,\"]\"]},2", packet.getDataSource().toString(CharsetUtil.UTF_8));
+        Assert.assertFalse(buffer.isReadable());
+
+        packet.releaseAttachments();
+        Assert.assertEquals(1, buffer.refCnt());
+        buffer.release();
+    }
+
+    @Test
+    public void testDecodeRawEventWithoutArgs() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("42[\"chat\"]", CharsetUtil.UTF_8);
+        Packet packet = createDecoder().decodePackets(buffer, null);
+
+        Assert.assertEquals("chat", packet.getName());
+        Assert.assertFalse(packet.getDataSource().isReadable());
+        packet.releaseAttachments();
+        buffer.release();
+    }
+
+    @Test
+    public void testDecodeNotRawEvent() throws IOException {
+        ByteBuf buffer = Unpooled.copiedBuffer("42[\"message\",1]", CharsetUtil.UTF_8);
+        Packet packet = createDecoder().decodePackets(buffer, null);
+
+        Assert.assertEquals("message", packet.getName());
+        Assert.assertNull(packet.getDataSource());
+        buffer.release();
+    }
+
+    @Test
+    public void testEncodeRelayedEvent() throws IOException {
+        PacketEncoder encoder = new PacketEncoder(new Configuration(), jsonSupport);
+        ByteBuf rawArgs = Unpooled.copiedBuffer("{\"a\":1},2", CharsetUtil.UTF_8);
+
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("chat");
+        packet.setDataSource(rawArgs);
+
+        ByteBuf buffer = Unpooled.buffer();
+        encoder.encodePacket(packet, buffer, ByteBufAllocator.DEFAULT, true);
+        Assert.assertEquals("42[\"chat\",{\"a\":1},2]", buffer.toString(CharsetUtil.UTF_8));
+
+        buffer.release();
+        rawArgs.release();
+    }
+
+}
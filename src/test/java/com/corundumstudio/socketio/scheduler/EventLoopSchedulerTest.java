@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.scheduler;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.scheduler.SchedulerKey.Type;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+
+public class EventLoopSchedulerTest {
+
+    private final EventLoop eventLoop = new DefaultEventLoop();
+    private final EventLoopScheduler scheduler = new EventLoopScheduler();
+    private final UUID sessionId = UUID.randomUUID();
+    private final SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId, eventLoop);
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+        eventLoop.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean inEventLoop = new AtomicBoolean();
+        scheduler.schedule(key, new Runnable() {
+            @Override
+            public void run() {
+                inEventLoop.set(eventLoop.inEventLoop());
+                latch.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(inEventLoop.get());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicBoolean executed = new AtomicBoolean();
+        scheduler.schedule(key, new Runnable() {
+            @Override
+            public void run() {
+                executed.set(true);
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        scheduler.cancel(key);
+
+        Thread.sleep(300);
+        Assert.assertFalse(executed.get());
+    }
+
+    @Test
+    public void testReplace() throws InterruptedException {
+        final AtomicBoolean replacedExecuted = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(key, new Runnable() {
+            @Override
+            public void run() {
+                replacedExecuted.set(true);
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        // same key cancels previous task
+        scheduler.schedule(new SchedulerKey(Type.PING_TIMEOUT, sessionId, eventLoop), new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(replacedExecuted.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoEventLoop() {
+        scheduler.schedule(new SchedulerKey(Type.PING_TIMEOUT, UUID.randomUUID()), new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+    }
+
+}